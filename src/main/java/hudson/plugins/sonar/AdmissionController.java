@@ -0,0 +1,238 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.Util;
+import hudson.plugins.sonar.utils.SonarServerClient;
+import hudson.plugins.sonar.utils.SonarServerClient.ServerStatus;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+/**
+ * Number of analyses launched at the same time against a Sonar server, adapted to the load of the server: the limit
+ * grows by one with each analysis completed while the server answers fast with a short processing queue, is halved as
+ * soon as it doesn't, and drops to zero while the server is down. An analysis doesn't wait longer than
+ * {@link #MAX_WAIT} for a server that stays down.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public final class AdmissionController {
+	private static final Logger LOG = Logger.getLogger(AdmissionController.class.getName());
+
+	private static final String PREFIX = AdmissionController.class.getName();
+
+	/**
+	 * Time a polled status is reused, in milliseconds.
+	 */
+	public static long STATUS_TTL = Long.getLong(PREFIX + ".statusTtl", 30000);
+
+	/**
+	 * Latency of the server above which it is considered busy, in milliseconds.
+	 */
+	public static long LATENCY_THRESHOLD = Long.getLong(PREFIX + ".latencyThreshold", 2000);
+
+	/**
+	 * Number of reports waiting to be processed above which the server is considered busy.
+	 */
+	public static int QUEUE_THRESHOLD = Integer.getInteger(PREFIX + ".queueThreshold", 10);
+
+	public static int MAX_LIMIT = Integer.getInteger(PREFIX + ".maxLimit", 8);
+
+	/**
+	 * Time an analysis waits for a server that is not available, in milliseconds: the time a probe result is trusted
+	 * by default.
+	 */
+	public static long MAX_WAIT = Long.getLong(PREFIX + ".maxWait", SonarServerProbe.TTL);
+
+	private static final ConcurrentMap<String, AdmissionController> CONTROLLERS = new ConcurrentHashMap<String, AdmissionController>();
+
+	private final SonarServerClient client;
+
+	private final long statusTtl;
+
+	private final long latencyThreshold;
+
+	private final int queueThreshold;
+
+	private final int maxLimit;
+
+	private final long maxWait;
+
+	private final Object pollLock = new Object();
+
+	private int limit = 1;
+
+	private int running;
+
+	private long lastPoll;
+
+	private ServerStatus lastStatus;
+
+	private IOException lastError;
+
+	AdmissionController(SonarServerClient client, long statusTtl, long latencyThreshold, int queueThreshold, int maxLimit, long maxWait) {
+		this.client = client;
+		this.statusTtl = statusTtl;
+		this.latencyThreshold = latencyThreshold;
+		this.queueThreshold = queueThreshold;
+		this.maxLimit = Math.max(1, maxLimit);
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * @return controller of the server of the installation, shared by the builds
+	 */
+	public static AdmissionController get(SonarInstallation installation) {
+		SonarServerClient client = new SonarServerClient(installation);
+		AdmissionController controller = CONTROLLERS.get(client.getUrl());
+		if (controller == null) {
+			CONTROLLERS.putIfAbsent(client.getUrl(), new AdmissionController(client, STATUS_TTL, LATENCY_THRESHOLD, QUEUE_THRESHOLD, MAX_LIMIT,
+					MAX_WAIT));
+			controller = CONTROLLERS.get(client.getUrl());
+		}
+		return controller;
+	}
+
+	/**
+	 * @return current number of analyses allowed to run at the same time
+	 */
+	public synchronized int getLimit() {
+		return limit;
+	}
+
+	public synchronized int getRunning() {
+		return running;
+	}
+
+	/**
+	 * @return last polled status of the server, or null if it couldn't be reached
+	 */
+	public synchronized ServerStatus getLastStatus() {
+		return lastStatus;
+	}
+
+	/**
+	 * @return last polled status of the server, or why it couldn't be reached
+	 */
+	public synchronized String describeLastStatus() {
+		return lastError == null ? String.valueOf(lastStatus) : lastError.getMessage();
+	}
+
+	/**
+	 * Polls the server, unless the last status is recent enough, and lowers the limit if the server is busy or down.
+	 * A server back up gets one analysis again.
+	 */
+	void refresh() {
+		synchronized (pollLock) {
+			synchronized (this) {
+				if (lastPoll != 0 && System.currentTimeMillis() - lastPoll < statusTtl) {
+					return;
+				}
+			}
+			ServerStatus status = null;
+			IOException error = null;
+			try {
+				status = client.getStatus();
+			} catch (IOException e) {
+				error = e;
+			}
+			synchronized (this) {
+				lastPoll = System.currentTimeMillis();
+				lastStatus = status;
+				lastError = error;
+				int previous = limit;
+				if (status == null || !status.isUp()) {
+					limit = 0;
+				} else if (!isHealthy(status)) {
+					limit = Math.max(1, limit / 2);
+				} else if (limit == 0) {
+					limit = 1;
+				}
+				logLimit(previous);
+				notifyAll();
+			}
+		}
+	}
+
+	private void logLimit(int previous) {
+		if (limit != previous) {
+			LOG.info("Analyses admitted on " + client.getUrl() + ": " + limit + " (" + (lastError == null ? lastStatus : lastError) + ")");
+		}
+	}
+
+	private boolean isHealthy(ServerStatus status) {
+		return status != null && status.isUp() && status.getLatency() <= latencyThreshold && status.getQueueSize() <= queueThreshold;
+	}
+
+	/**
+	 * Waits until the server can take one more analysis. A busy server is waited for as long as it takes, a server
+	 * that is not available for the maximum wait at most.
+	 * 
+	 * @return true if the analysis can be launched, false if the server stayed unavailable for the maximum wait
+	 */
+	public boolean acquire(PrintStream logger) throws InterruptedException {
+		boolean reported = false;
+		long unavailableSince = 0;
+		while (true) {
+			refresh();
+			synchronized (this) {
+				if (running < limit) {
+					running++;
+					return true;
+				}
+				long now = System.currentTimeMillis();
+				long timeout = statusTtl;
+				if (limit > 0) {
+					unavailableSince = 0;
+				} else if (unavailableSince == 0) {
+					unavailableSince = now;
+					timeout = Math.min(timeout, maxWait);
+				} else if (now - unavailableSince >= maxWait) {
+					return false;
+				} else {
+					timeout = Math.min(timeout, maxWait - (now - unavailableSince));
+				}
+				if (!reported) {
+					logger.println("[SonarPlugin] [INFO] Sonar server " + (limit == 0 ? "not available" : "busy") + " ("
+							+ describeLastStatus() + "), waiting" + (limit == 0 ? " up to " + Util.getTimeSpanString(maxWait) : "") + ": "
+							+ running + " analyses running, " + limit + " allowed");
+					reported = true;
+				}
+				// Woken up by a release, or polls again once the status expired
+				wait(Math.max(1, timeout));
+			}
+		}
+	}
+
+	/**
+	 * Frees the place of an analysis. A completed analysis the server took well, still healthy, allows one more.
+	 * 
+	 * @param completed true if the analysis ran, false if it was given up before
+	 */
+	public synchronized void release(boolean completed) {
+		running = Math.max(0, running - 1);
+		if (completed && limit > 0 && isHealthy(lastStatus)) {
+			int previous = limit;
+			limit = Math.min(maxLimit, limit + 1);
+			logLimit(previous);
+		}
+		notifyAll();
+	}
+}
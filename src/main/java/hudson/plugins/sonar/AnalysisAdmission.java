@@ -0,0 +1,193 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.Hudson;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Number of analyses running at the same time on the Jenkins instance, bounded if the global configuration asks for
+ * it. Waiting analyses are admitted by priority of their trigger cause, then shortest estimated duration first.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public final class AnalysisAdmission {
+	/**
+	 * Estimated duration of the analysis of a job never analyzed.
+	 */
+	static final long DEFAULT_DURATION = TimeUnit.MINUTES.toMillis(5);
+
+	static final Comparator<Ticket> ADMISSION_ORDER = new Comparator<Ticket>() {
+		public int compare(Ticket t1, Ticket t2) {
+			int result = t1.priority.compareTo(t2.priority);
+			if (result == 0) {
+				result = compare(t1.estimate, t2.estimate);
+			}
+			if (result == 0) {
+				result = compare(t1.sequence, t2.sequence);
+			}
+			return result;
+		}
+
+		private int compare(long l1, long l2) {
+			return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+		}
+	};
+
+	private static AnalysisAdmission instance;
+
+	/**
+	 * Maximum number of analyses running at the same time, unlimited if 0.
+	 */
+	private int slots;
+
+	private final List<Ticket> waiting = new ArrayList<Ticket>();
+
+	private final List<Ticket> running = new ArrayList<Ticket>();
+
+	private long sequence;
+
+	AnalysisAdmission(int slots) {
+		this.slots = Math.max(0, slots);
+	}
+
+	public static synchronized AnalysisAdmission get() {
+		if (instance == null) {
+			instance = new AnalysisAdmission(Hudson.getInstance().getDescriptorByType(SonarPublisher.DescriptorImpl.class).getAnalysisSlots());
+		}
+		return instance;
+	}
+
+	/**
+	 * @param slots maximum number of analyses running at the same time, unlimited if 0
+	 */
+	public synchronized void setSlots(int slots) {
+		this.slots = Math.max(0, slots);
+		notifyAll();
+	}
+
+	/**
+	 * Right to run an analysis, to release once the analysis is done.
+	 */
+	public static final class Ticket {
+		private final String job;
+
+		private final AnalysisPriority priority;
+
+		private final long estimate;
+
+		private final long sequence;
+
+		private long start;
+
+		Ticket(String job, AnalysisPriority priority, long estimate, long sequence) {
+			this.job = job;
+			this.priority = priority;
+			this.estimate = estimate;
+			this.sequence = sequence;
+		}
+
+		public String getJob() {
+			return job;
+		}
+
+		private long getRemaining(long now) {
+			return Math.max(0, estimate - (now - start));
+		}
+	}
+
+	/**
+	 * Waits for the analysis of the build to be admitted, reporting the position of the build in the queue and its
+	 * estimated wait to the console.
+	 */
+	public Ticket acquire(AbstractBuild<?, ?> build, PrintStream logger) throws InterruptedException {
+		String job = build.getProject().getFullName();
+		Long estimate = AnalysisTimestamps.get().getEstimatedDuration(job);
+		return acquire(job, AnalysisPriority.of(build), estimate == null ? DEFAULT_DURATION : estimate, logger);
+	}
+
+	synchronized Ticket acquire(String job, AnalysisPriority priority, long estimate, PrintStream logger) throws InterruptedException {
+		Ticket ticket = new Ticket(job, priority, estimate, sequence++);
+		waiting.add(ticket);
+		Collections.sort(waiting, ADMISSION_ORDER);
+		int reportedPosition = -1;
+		try {
+			while ((slots > 0 && running.size() >= slots) || waiting.get(0) != ticket) {
+				int position = waiting.indexOf(ticket);
+				if (position != reportedPosition) {
+					logger.println("[SonarPlugin] [INFO] Waiting for an analysis slot (" + priority + " priority): position "
+							+ (position + 1) + " of " + waiting.size() + ", estimated wait "
+							+ Util.getTimeSpanString(getEstimatedWait(position, System.currentTimeMillis())));
+					reportedPosition = position;
+				}
+				wait();
+			}
+		} catch (InterruptedException e) {
+			waiting.remove(ticket);
+			notifyAll();
+			throw e;
+		}
+		waiting.remove(0);
+		ticket.start = System.currentTimeMillis();
+		running.add(ticket);
+		// Another slot may be free for the next one
+		notifyAll();
+		return ticket;
+	}
+
+	/**
+	 * Frees the slot of an analysis.
+	 */
+	public synchronized void release(Ticket ticket) {
+		if (running.remove(ticket)) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * The slots are shared evenly by the remaining time of the running analyses and the estimated duration of the
+	 * analyses ahead in the queue.
+	 */
+	synchronized long getEstimatedWait(int position, long now) {
+		if (slots == 0) {
+			return 0;
+		}
+		long total = 0;
+		for (Ticket ticket : running) {
+			total += ticket.getRemaining(now);
+		}
+		for (int i = 0; i < position; i++) {
+			total += waiting.get(i).estimate;
+		}
+		return total / slots;
+	}
+
+	public synchronized int getRunningCount() {
+		return running.size();
+	}
+
+	public synchronized int getWaitingCount() {
+		return waiting.size();
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.Executor;
+import hudson.model.Node;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * What an analysis needs to know about the build it runs in. Created once per build by {@link SonarPublisher},
+ * so that the build environment, which can require calls to the agent, is computed only once and shared by all
+ * the stages of the analysis.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public class AnalysisContext {
+	private final AbstractBuild<?, ?> build;
+	private final Launcher launcher;
+	private final BuildListener listener;
+	private final SonarInstallation installation;
+	private final EnvVars env;
+	private final FilePath workspace;
+	private final Node node;
+	private ChangedFilesPreview preview;
+	private List<String> sourceDirs;
+
+	public AnalysisContext(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, SonarInstallation installation)
+	throws IOException, InterruptedException
+	{
+		this.build = build;
+		this.launcher = launcher;
+		this.listener = listener;
+		this.installation = installation;
+		this.env = build.getEnvironment(listener);
+		this.workspace = build.getWorkspace();
+		Executor executor = Executor.currentExecutor();
+		this.node = executor != null ? executor.getOwner().getNode() : build.getBuiltOn();
+	}
+
+	/**
+	 * Analysis of the workspace of another build, such as a combination of a matrix build, on the node it was built on.
+	 * 
+	 * @param workspaceBuild build whose workspace and environment are analyzed
+	 * @param launcher launcher on the node of the workspace build
+	 */
+	public AnalysisContext(AbstractBuild<?, ?> build, AbstractBuild<?, ?> workspaceBuild, Launcher launcher, BuildListener listener,
+			SonarInstallation installation) throws IOException, InterruptedException
+	{
+		this.build = build;
+		this.launcher = launcher;
+		this.listener = listener;
+		this.installation = installation;
+		this.env = workspaceBuild.getEnvironment(listener);
+		this.workspace = workspaceBuild.getWorkspace();
+		this.node = workspaceBuild.getBuiltOn();
+	}
+
+	public AbstractBuild<?, ?> getBuild() {
+		return build;
+	}
+
+	public Launcher getLauncher() {
+		return launcher;
+	}
+
+	public BuildListener getListener() {
+		return listener;
+	}
+
+	public SonarInstallation getInstallation() {
+		return installation;
+	}
+
+	/**
+	 * @return environment of the build, do not modify
+	 */
+	public EnvVars getEnv() {
+		return env;
+	}
+
+	public FilePath getWorkspace() {
+		return workspace;
+	}
+
+	/**
+	 * @return node on which the build runs
+	 */
+	public Node getNode() {
+		return node;
+	}
+
+	/**
+	 * @return preview of the changed files to run instead of a full analysis, or null
+	 */
+	public ChangedFilesPreview getPreview() {
+		return preview;
+	}
+
+	public void setPreview(ChangedFilesPreview preview) {
+		this.preview = preview;
+	}
+
+	/**
+	 * @return source directories of a sonar-runner analysis once resolved, or null
+	 */
+	public List<String> getSourceDirs() {
+		return sourceDirs;
+	}
+
+	public void setSourceDirs(List<String> sourceDirs) {
+		this.sourceDirs = sourceDirs;
+	}
+
+	/**
+	 * @return true if the build runs on a Unix node
+	 */
+	public boolean isUnix() {
+		return launcher.isUnix();
+	}
+
+	/**
+	 * @return the value with the build variables expanded
+	 */
+	public String expand(String value) {
+		return env.expand(value);
+	}
+}
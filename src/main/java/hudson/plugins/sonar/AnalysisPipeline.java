@@ -0,0 +1,248 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.model.Computer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stages of an analysis with their dependencies. Once started, every stage runs as soon as the stages it depends on
+ * are done, so that independent stages (which mostly wait for the agent) run concurrently.
+ * <p>
+ * Stages must be added after the stages they depend on, which rules out cycles.
+ * </p>
+ * 
+ * @since 1.6.1.thales.16
+ */
+public class AnalysisPipeline {
+	private static final Logger LOG = Logger.getLogger(AnalysisPipeline.class.getName());
+
+	/**
+	 * A step of the analysis, producing a value of type T.
+	 */
+	public static abstract class Stage<T> {
+		private final String name;
+		private final Stage<?>[] dependencies;
+
+		protected Stage(String name, Stage<?>... dependencies) {
+			this.name = name;
+			this.dependencies = dependencies;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Called once all the dependencies are done, values of the dependencies are available through
+		 * {@link AnalysisPipeline#get(Stage)}.
+		 */
+		protected abstract T run(AnalysisContext context) throws IOException, InterruptedException;
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	private final AnalysisContext context;
+	private final ExecutorService executor;
+	private final Map<Stage<?>, Future<?>> stages = new LinkedHashMap<Stage<?>, Future<?>>();
+	private boolean started;
+	private boolean cancelled;
+	/**
+	 * Number of stages whose code is running, cancelled ones included until they notice the interruption
+	 */
+	private int running;
+
+	public AnalysisPipeline(AnalysisContext context) {
+		this(context, Computer.threadPoolForRemoting);
+	}
+
+	/**
+	 * @param executor runs the stages, must not be bounded since a stage waits for its dependencies in its thread
+	 */
+	public AnalysisPipeline(AnalysisContext context, ExecutorService executor) {
+		this.context = context;
+		this.executor = executor;
+	}
+
+	public synchronized <T> Stage<T> add(Stage<T> stage) {
+		if (started) {
+			throw new IllegalStateException("Pipeline already started");
+		}
+		if (stages.containsKey(stage)) {
+			throw new IllegalArgumentException("Stage " + stage + " already added");
+		}
+		for (Stage<?> dependency : stage.dependencies) {
+			if (!stages.containsKey(dependency)) {
+				throw new IllegalArgumentException("Stage " + stage + " depends on " + dependency + ", which must be added first");
+			}
+		}
+		stages.put(stage, null);
+		return stage;
+	}
+
+	/**
+	 * Starts all the stages.
+	 */
+	public synchronized void start() {
+		if (started) {
+			throw new IllegalStateException("Pipeline already started");
+		}
+		started = true;
+		for (final Stage<?> stage : new ArrayList<Stage<?>>(stages.keySet())) {
+			stages.put(stage, executor.submit(new Callable<Object>() {
+				public Object call() throws Exception {
+					synchronized (AnalysisPipeline.this) {
+						if (cancelled) {
+							throw new InterruptedException("Stage " + stage + " cancelled");
+						}
+						running++;
+					}
+					try {
+						for (Stage<?> dependency : stage.dependencies) {
+							get(dependency);
+						}
+						long start = System.currentTimeMillis();
+						try {
+							return stage.run(context);
+						} finally {
+							LOG.fine("Stage " + stage + " took " + (System.currentTimeMillis() - start) + "ms");
+						}
+					} finally {
+						synchronized (AnalysisPipeline.this) {
+							running--;
+							AnalysisPipeline.this.notifyAll();
+						}
+					}
+				}
+			}));
+		}
+	}
+
+	/**
+	 * Waits for the given stage.
+	 * 
+	 * @return value produced by the stage
+	 * @throws IOException if the stage, or one of its dependencies, failed
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(Stage<T> stage) throws IOException, InterruptedException {
+		Future<?> future;
+		synchronized (this) {
+			if (!started) {
+				throw new IllegalStateException("Pipeline not started");
+			}
+			future = stages.get(stage);
+		}
+		if (future == null) {
+			throw new IllegalArgumentException("Unknown stage " + stage);
+		}
+		try {
+			return (T) future.get();
+		} catch (CancellationException e) {
+			throw new InterruptedException("Stage " + stage + " cancelled");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof InterruptedException) {
+				throw (InterruptedException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException("Stage " + stage + " failed", cause);
+		}
+	}
+
+	/**
+	 * Cancels the stages which are not over, and interrupts the running ones. To be called when the build is
+	 * interrupted, so that the stages don't keep the agent busy for an analysis which won't run.
+	 */
+	public void cancel() {
+		List<Future<?>> futures;
+		synchronized (this) {
+			cancelled = true;
+			futures = new ArrayList<Future<?>>(stages.values());
+		}
+		for (Future<?> future : futures) {
+			if (future != null) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Waits for all the stages to be over, whatever their outcome. To be called before cleaning up what the stages
+	 * may have created. If interrupted, cancels the stages and waits for the running ones to stop; another
+	 * interruption gives up waiting.
+	 */
+	public void join() {
+		List<Future<?>> futures;
+		synchronized (this) {
+			futures = new ArrayList<Future<?>>(stages.values());
+		}
+		boolean interrupted = false;
+		for (Future<?> future : futures) {
+			if (future == null) {
+				continue;
+			}
+			try {
+				future.get();
+			} catch (CancellationException e) {
+				// nothing to wait for
+			} catch (ExecutionException e) {
+				LOG.log(Level.FINE, "Stage failed", e.getCause());
+			} catch (InterruptedException e) {
+				interrupted = true;
+				cancel();
+				break;
+			}
+		}
+		// A cancelled future is done at once, its stage is only over once it noticed the interruption
+		synchronized (this) {
+			while (running > 0) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Cause;
+import hudson.triggers.SCMTrigger;
+import hudson.triggers.TimerTrigger;
+
+/**
+ * Priority of the analysis of a build, from its causes: analyses requested by a user come first, periodic ones last.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public enum AnalysisPriority {
+	USER, UPSTREAM, SCM, TIMER, OTHER;
+
+	/**
+	 * @return highest priority among the causes of the build
+	 */
+	public static AnalysisPriority of(AbstractBuild<?, ?> build) {
+		AnalysisPriority priority = OTHER;
+		for (Cause cause : build.getCauses()) {
+			AnalysisPriority causePriority = of(cause);
+			if (causePriority.compareTo(priority) < 0) {
+				priority = causePriority;
+			}
+		}
+		return priority;
+	}
+
+	static AnalysisPriority of(Cause cause) {
+		if (cause instanceof DeferredAnalysisCause) {
+			return ((DeferredAnalysisCause) cause).getPriority();
+		} else if (cause instanceof Cause.UserCause || cause instanceof Cause.UserIdCause) {
+			return USER;
+		} else if (cause instanceof Cause.UpstreamCause) {
+			return UPSTREAM;
+		} else if (cause instanceof SCMTrigger.SCMTriggerCause) {
+			return SCM;
+		} else if (cause instanceof TimerTrigger.TimerTriggerCause) {
+			return TIMER;
+		}
+		return OTHER;
+	}
+}
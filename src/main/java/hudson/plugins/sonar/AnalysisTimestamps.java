@@ -0,0 +1,174 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.XmlFile;
+import hudson.model.Hudson;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Time of the last analysis of each job, estimate of its duration and URL of its dashboard, persisted in the Jenkins
+ * root directory so that neither the decision to analyze a build nor the job page need to walk the build history.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public final class AnalysisTimestamps {
+	private static final Logger LOG = Logger.getLogger(AnalysisTimestamps.class.getName());
+
+	static final String FILE_NAME = AnalysisTimestamps.class.getName() + ".xml";
+
+	/**
+	 * Weight of the last analysis in the estimated duration.
+	 */
+	static final double DURATION_WEIGHT = 0.3;
+
+	private static AnalysisTimestamps instance;
+
+	private final transient XmlFile file;
+
+	private final Map<String, Long> lastAnalyses = new TreeMap<String, Long>();
+
+	/**
+	 * Exponentially weighted moving average of the durations of the analyses of each job, in milliseconds.
+	 */
+	private final Map<String, Long> durations = new TreeMap<String, Long>();
+
+	/**
+	 * URL of the Sonar dashboard recorded by the last analysis of each job.
+	 */
+	private final Map<String, String> dashboardUrls = new TreeMap<String, String>();
+
+	AnalysisTimestamps(File file) {
+		this.file = new XmlFile(file);
+		load();
+	}
+
+	/**
+	 * @return index of the running Jenkins instance
+	 */
+	public static synchronized AnalysisTimestamps get() {
+		File file = new File(Hudson.getInstance().getRootDir(), FILE_NAME);
+		if (instance == null || !instance.file.getFile().equals(file)) {
+			instance = new AnalysisTimestamps(file);
+		}
+		return instance;
+	}
+
+	/**
+	 * @param key full name of the job
+	 * @return time of the last analysis of the job, or null if it was never analyzed
+	 */
+	public synchronized Long getLastAnalysis(String key) {
+		return lastAnalyses.get(key);
+	}
+
+	/**
+	 * @param key full name of the job
+	 * @return estimated duration of an analysis of the job, in milliseconds, or null if it was never measured
+	 */
+	public synchronized Long getEstimatedDuration(String key) {
+		return durations.get(key);
+	}
+
+	/**
+	 * @param key full name of the job
+	 * @return URL of the Sonar dashboard recorded by the last analysis of the job, or null if none
+	 */
+	public synchronized String getDashboardUrl(String key) {
+		return dashboardUrls.get(key);
+	}
+
+	/**
+	 * Records the URL of the Sonar dashboard of the job, and saves the index if it changed.
+	 * 
+	 * @param key full name of the job
+	 * @param url URL of the dashboard
+	 */
+	public synchronized void recordDashboardUrl(String key, String url) {
+		if (!url.equals(dashboardUrls.put(key, url))) {
+			save();
+		}
+	}
+
+	/**
+	 * Records an analysis of the job and saves the index.
+	 * 
+	 * @param key full name of the job
+	 * @param time time of the analysis
+	 */
+	public synchronized void record(String key, long time) {
+		lastAnalyses.put(key, time);
+		save();
+	}
+
+	/**
+	 * Records an analysis of the job, with its duration, and saves the index.
+	 * 
+	 * @param key full name of the job
+	 * @param time time of the analysis
+	 * @param duration duration of the analysis, in milliseconds
+	 */
+	public synchronized void record(String key, long time, long duration) {
+		lastAnalyses.put(key, time);
+		Long estimate = durations.get(key);
+		durations.put(key, estimate == null ? duration : Math.round(DURATION_WEIGHT * duration + (1 - DURATION_WEIGHT) * estimate));
+		save();
+	}
+
+	private void save() {
+		try {
+			file.write(this);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Failed to save " + file, e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void load() {
+		if (!file.exists()) {
+			return;
+		}
+		Object loaded;
+		try {
+			loaded = file.read();
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Failed to load " + file, e);
+			return;
+		}
+		if (loaded instanceof AnalysisTimestamps) {
+			AnalysisTimestamps timestamps = (AnalysisTimestamps) loaded;
+			if (timestamps.lastAnalyses != null) {
+				lastAnalyses.putAll(timestamps.lastAnalyses);
+			}
+			if (timestamps.durations != null) {
+				durations.putAll(timestamps.durations);
+			}
+			if (timestamps.dashboardUrls != null) {
+				dashboardUrls.putAll(timestamps.dashboardUrls);
+			}
+		} else if (loaded instanceof Map) {
+			// Written by the first versions, without durations
+			lastAnalyses.putAll((Map<String, Long>) loaded);
+			save();
+		}
+	}
+}
@@ -26,6 +26,28 @@ import hudson.plugins.sonar.utils.MagicNames;
  * @since 1.2
  */
 public final class BuildSonarAction implements BuildBadgeAction {
+  /**
+   * URL of the Sonar dashboard of the analyzed project, resolved at analysis time.
+   *
+   * @since 1.6.1.thales.16
+   */
+  private final String url;
+
+  public BuildSonarAction() {
+    this(null);
+  }
+
+  public BuildSonarAction(String url) {
+    this.url = url;
+  }
+
+  /**
+   * @return URL of the Sonar dashboard, or null for builds analyzed by older versions of the plugin
+   */
+  public String getUrl() {
+    return url;
+  }
+
   public String getTooltip() {
     return Messages.BuildSonarAction_Tooltip();
   }
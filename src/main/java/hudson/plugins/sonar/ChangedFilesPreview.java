@@ -0,0 +1,172 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.scm.ChangeLogSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Preview analysis of the files changed by a build of a branch other than the mainline: issues are only computed on
+ * the changed files, in the source directories containing them, and nothing is published to the server.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public final class ChangedFilesPreview {
+	/**
+	 * Branch analyzed in full when no branch is configured for the job.
+	 */
+	public static final String DEFAULT_MAINLINE = "master";
+
+	/**
+	 * Environment variables holding the branch of the build, set by multi-branch jobs and the Git plugin.
+	 */
+	private static final String[] BRANCH_VARIABLES = { "BRANCH_NAME", "GIT_LOCAL_BRANCH", "GIT_BRANCH" };
+
+	private final String branch;
+
+	private final List<String> changedFiles;
+
+	ChangedFilesPreview(String branch, Collection<String> changedFiles) {
+		this.branch = branch;
+		this.changedFiles = new ArrayList<String>(changedFiles);
+	}
+
+	/**
+	 * @param mainline branch to analyze in full, {@link #DEFAULT_MAINLINE} if blank
+	 * @return the preview of the build, or null if the build is on the mainline or its branch is unknown
+	 */
+	public static ChangedFilesPreview of(AbstractBuild<?, ?> build, EnvVars env, String mainline) {
+		String branch = getBranch(env);
+		if (branch == null || isMainline(branch, StringUtils.defaultIfEmpty(StringUtils.trimToEmpty(mainline), DEFAULT_MAINLINE))) {
+			return null;
+		}
+		Set<String> changedFiles = new TreeSet<String>();
+		for (ChangeLogSet.Entry entry : build.getChangeSet()) {
+			for (String path : entry.getAffectedPaths()) {
+				changedFiles.add(normalize(path));
+			}
+		}
+		return new ChangedFilesPreview(branch, changedFiles);
+	}
+
+	static String getBranch(EnvVars env) {
+		for (String variable : BRANCH_VARIABLES) {
+			String branch = StringUtils.trimToNull(env.get(variable));
+			if (branch != null) {
+				return branch;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Remote and ref prefixes are ignored: origin/master and refs/heads/master are on the master mainline.
+	 */
+	static boolean isMainline(String branch, String mainline) {
+		return branch.equals(mainline) || branch.endsWith("/" + mainline);
+	}
+
+	public String getBranch() {
+		return branch;
+	}
+
+	/**
+	 * @return paths of the changed files, relative to the root of the repository
+	 */
+	public List<String> getChangedFiles() {
+		return Collections.unmodifiableList(changedFiles);
+	}
+
+	/**
+	 * @param sourceDirs source directories of the project, relative to the workspace
+	 * @return the source directories containing changed files
+	 */
+	public List<String> getSourceDirs(List<String> sourceDirs) {
+		List<String> changedDirs = new ArrayList<String>();
+		for (String sourceDir : sourceDirs) {
+			for (String file : changedFiles) {
+				if (getRelativePath(sourceDir, file) != null) {
+					changedDirs.add(sourceDir);
+					break;
+				}
+			}
+		}
+		return changedDirs;
+	}
+
+	/**
+	 * Properties turning the analysis into a preview of the changed files. Inclusion patterns are relative to the
+	 * source directories; without source directories, files are included by name.
+	 * 
+	 * @param sourceDirs source directories of the project, or null if they are not known
+	 * @param fourOrHigher true for Sonar 4.0 or higher, which replaced dry runs by the preview mode
+	 */
+	public Map<String, String> getProperties(List<String> sourceDirs, boolean fourOrHigher) {
+		Set<String> inclusions = new LinkedHashSet<String>();
+		for (String file : changedFiles) {
+			if (sourceDirs == null) {
+				inclusions.add("**/" + StringUtils.substringAfterLast("/" + file, "/"));
+				continue;
+			}
+			for (String sourceDir : sourceDirs) {
+				String relativePath = getRelativePath(sourceDir, file);
+				if (relativePath != null) {
+					inclusions.add("**/" + relativePath);
+				}
+			}
+		}
+		Map<String, String> properties = new LinkedHashMap<String, String>();
+		if (fourOrHigher) {
+			properties.put("sonar.analysis.mode", "preview");
+		} else {
+			properties.put("sonar.dryRun", "true");
+		}
+		properties.put("sonar.inclusions", StringUtils.join(inclusions, ','));
+		return properties;
+	}
+
+	/**
+	 * @return path of the file relative to the directory, or null if the file is not in the directory
+	 */
+	private static String getRelativePath(String dir, String file) {
+		String prefix = normalize(dir);
+		if (prefix.length() == 0 || prefix.equals(".")) {
+			return file;
+		}
+		return file.startsWith(prefix + "/") ? file.substring(prefix.length() + 1) : null;
+	}
+
+	private static String normalize(String path) {
+		String normalized = path.replace('\\', '/');
+		while (normalized.startsWith("./")) {
+			normalized = normalized.substring(2);
+		}
+		return StringUtils.removeEnd(normalized, "/");
+	}
+}
@@ -0,0 +1,292 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.AbstractProject;
+import hudson.model.Hudson;
+import hudson.model.PeriodicWork;
+import hudson.plugins.sonar.model.TriggersConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Analyses deferred to the analysis window of their job, persisted in the Jenkins root directory. Only the newest
+ * build of a job is kept: one analysis brings the dashboard up to date.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public final class DeferredAnalyses {
+	private static final Logger LOG = Logger.getLogger(DeferredAnalyses.class.getName());
+
+	static final String FILE_NAME = DeferredAnalyses.class.getName() + ".xml";
+
+	/**
+	 * Highest priority first, then oldest first.
+	 */
+	static final Comparator<Entry> PRIORITY_ORDER = new Comparator<Entry>() {
+		public int compare(Entry e1, Entry e2) {
+			int result = e1.getPriority().compareTo(e2.getPriority());
+			if (result == 0) {
+				result = e1.getTime() < e2.getTime() ? -1 : (e1.getTime() == e2.getTime() ? 0 : 1);
+			}
+			return result;
+		}
+	};
+
+	private static DeferredAnalyses instance;
+
+	private final XmlFile file;
+
+	private final List<Entry> entries = new ArrayList<Entry>();
+
+	DeferredAnalyses(File file) {
+		this.file = new XmlFile(file);
+		load();
+	}
+
+	/**
+	 * @return deferred analyses of the running Jenkins instance
+	 */
+	public static synchronized DeferredAnalyses get() {
+		File file = new File(Hudson.getInstance().getRootDir(), FILE_NAME);
+		if (instance == null || !instance.file.getFile().equals(file)) {
+			instance = new DeferredAnalyses(file);
+		}
+		return instance;
+	}
+
+	/**
+	 * Analysis of a build, waiting for the analysis window of its job.
+	 */
+	public static final class Entry {
+		private final String job;
+
+		private final int buildNumber;
+
+		private final long time;
+
+		private final AnalysisPriority priority;
+
+		/**
+		 * Time before which the analysis must not run, or null to run it as soon as the window opens.
+		 */
+		private final Long notBefore;
+
+		/**
+		 * True once a build has been scheduled to run the analysis.
+		 */
+		private boolean scheduled;
+
+		public Entry(String job, int buildNumber, long time, AnalysisPriority priority) {
+			this(job, buildNumber, time, priority, null);
+		}
+
+		public Entry(String job, int buildNumber, long time, AnalysisPriority priority, Long notBefore) {
+			this.job = job;
+			this.buildNumber = buildNumber;
+			this.time = time;
+			this.priority = priority;
+			this.notBefore = notBefore;
+		}
+
+		/**
+		 * @return full name of the job
+		 */
+		public String getJob() {
+			return job;
+		}
+
+		public int getBuildNumber() {
+			return buildNumber;
+		}
+
+		/**
+		 * @return time the analysis was deferred
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		public AnalysisPriority getPriority() {
+			return priority;
+		}
+
+		/**
+		 * @return time before which the analysis must not run, or null
+		 */
+		public Long getNotBefore() {
+			return notBefore;
+		}
+
+		public boolean isDue(Calendar now) {
+			return notBefore == null || now.getTimeInMillis() >= notBefore;
+		}
+
+		public boolean isScheduled() {
+			return scheduled;
+		}
+	}
+
+	/**
+	 * @return deferred analyses, in priority order
+	 */
+	public synchronized List<Entry> getEntries() {
+		List<Entry> result = new ArrayList<Entry>(entries);
+		Collections.sort(result, PRIORITY_ORDER);
+		return result;
+	}
+
+	/**
+	 * Defers an analysis, replacing the one of an older build of the same job.
+	 */
+	public synchronized void defer(Entry entry) {
+		for (Iterator<Entry> it = entries.iterator(); it.hasNext();) {
+			if (it.next().getJob().equals(entry.getJob())) {
+				it.remove();
+			}
+		}
+		entries.add(entry);
+		save();
+	}
+
+	/**
+	 * Removes the deferred analysis of a build, once analyzed.
+	 */
+	public synchronized void done(String job, int buildNumber) {
+		for (Iterator<Entry> it = entries.iterator(); it.hasNext();) {
+			Entry entry = it.next();
+			if (entry.getJob().equals(job) && entry.getBuildNumber() == buildNumber) {
+				it.remove();
+				save();
+			}
+		}
+	}
+
+	/**
+	 * Schedules the deferred analyses which are due and whose window is open, as full builds of their job, in priority
+	 * order, without exceeding the global parallelism. Analyses waiting for a server known to be down stay deferred.
+	 * Analyses of deleted jobs, or whose build ended without analyzing, are dropped.
+	 * 
+	 * @param now current time
+	 */
+	public synchronized void drain(Calendar now) {
+		Collections.sort(entries, PRIORITY_ORDER);
+		int parallelism = Hudson.getInstance().getDescriptorByType(SonarPublisher.DescriptorImpl.class).getWindowParallelism();
+		int running = 0;
+		boolean changed = false;
+		for (Iterator<Entry> it = entries.iterator(); it.hasNext();) {
+			Entry entry = it.next();
+			AbstractProject<?, ?> job = getJob(entry);
+			if (job == null || getTriggers(job) == null) {
+				it.remove();
+				changed = true;
+			} else if (entry.isScheduled()) {
+				if (job.isInQueue() || job.isBuilding()) {
+					running++;
+				} else {
+					LOG.warning("Deferred analysis of " + job.getFullName() + " #" + entry.getBuildNumber() + " ended without analysis");
+					it.remove();
+					changed = true;
+				}
+			}
+		}
+		for (Entry entry : entries) {
+			if (entry.isScheduled()) {
+				continue;
+			}
+			AbstractProject<?, ?> job = getJob(entry);
+			TriggersConfig triggers = getTriggers(job);
+			if (running < parallelism && entry.isDue(now) && triggers.isInAnalysisWindow(now) && !isServerDown(job)
+					&& job.scheduleBuild(0, new DeferredAnalysisCause(entry))) {
+				LOG.info("Scheduled a build of " + job.getFullName() + " to run the deferred analysis of #" + entry.getBuildNumber());
+				entry.scheduled = true;
+				running++;
+				changed = true;
+			}
+		}
+		if (changed) {
+			save();
+		}
+	}
+
+	private static AbstractProject<?, ?> getJob(Entry entry) {
+		return Hudson.getInstance().getItemByFullName(entry.getJob(), AbstractProject.class);
+	}
+
+	private static TriggersConfig getTriggers(AbstractProject<?, ?> job) {
+		SonarPublisher publisher = job.getPublishersList().get(SonarPublisher.class);
+		return publisher == null ? null : publisher.getEffectiveTriggers();
+	}
+
+	/**
+	 * @return true if the server of the job is known to be down, without probing it
+	 */
+	private static boolean isServerDown(AbstractProject<?, ?> job) {
+		SonarInstallation installation = job.getPublishersList().get(SonarPublisher.class).getInstallation();
+		if (installation == null || !installation.isProbeServer()) {
+			return false;
+		}
+		SonarServerProbe.Result probe = SonarServerProbe.getCachedResult(installation);
+		return probe != null && !probe.isUp();
+	}
+
+	private void save() {
+		try {
+			file.write(entries);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Failed to save " + file, e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void load() {
+		if (!file.exists()) {
+			return;
+		}
+		try {
+			entries.addAll((List<Entry>) file.read());
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Failed to load " + file, e);
+		}
+	}
+
+	/**
+	 * Checks every minute for deferred analyses whose window opened.
+	 */
+	@Extension
+	public static class Scheduler extends PeriodicWork {
+		@Override
+		public long getRecurrencePeriod() {
+			return MIN;
+		}
+
+		@Override
+		protected void doRun() {
+			DeferredAnalyses.get().drain(Calendar.getInstance());
+		}
+	}
+}
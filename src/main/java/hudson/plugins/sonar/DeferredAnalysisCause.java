@@ -0,0 +1,50 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.model.Cause;
+
+/**
+ * Build scheduled to run the analysis of an earlier build, deferred to the analysis window.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public class DeferredAnalysisCause extends Cause {
+	private final int buildNumber;
+
+	private final AnalysisPriority priority;
+
+	public DeferredAnalysisCause(DeferredAnalyses.Entry entry) {
+		this.buildNumber = entry.getBuildNumber();
+		this.priority = entry.getPriority();
+	}
+
+	/**
+	 * @return number of the build whose analysis was deferred
+	 */
+	public int getBuildNumber() {
+		return buildNumber;
+	}
+
+	public AnalysisPriority getPriority() {
+		return priority;
+	}
+
+	@Override
+	public String getShortDescription() {
+		return Messages.DeferredAnalysisCause_ShortDescription(buildNumber);
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.AbortException;
+import hudson.FilePath.FileCallable;
+import hudson.Util;
+import hudson.maven.MavenModule;
+import hudson.maven.MavenModuleSet;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Multi-module sonar-runner properties generated from the modules the Maven integration recorded for a Maven job,
+ * so that the job can be analyzed without starting Maven.
+ * <p>
+ * The Maven integration records the modules, their coordinates and their location, but neither their source roots
+ * nor their resolved classpath: the conventional <tt>src/main/java</tt> and <tt>target/classes</tt> layout is
+ * assumed, modules without sources are left out (and reported), and <tt>sonar.libraries</tt> is not set.
+ * </p>
+ * <p>
+ * The <tt>-Dkey=value</tt> arguments of the additional Maven properties of the installation and of the job are passed
+ * on as properties, the other arguments only make sense to Maven and are reported as ignored.
+ * </p>
+ * 
+ * @since 1.6.1.thales.16
+ */
+public final class MavenModulesRunnerProperties {
+	static final String SOURCES = "src/main/java";
+	static final String BINARIES = "target/classes";
+
+	/**
+	 * What the properties need to know about a module.
+	 */
+	static final class Module {
+		final String key;
+		final String name;
+		final String version;
+		final String relativePath;
+		boolean hasSources;
+		boolean hasBinaries;
+
+		Module(String key, String name, String version, String relativePath) {
+			this.key = key;
+			this.name = name;
+			this.version = version;
+			this.relativePath = StringUtils.defaultString(relativePath).replace('\\', '/');
+		}
+
+		/**
+		 * @return identifier of the module in sonar.modules, before it is made unique
+		 */
+		String getId() {
+			return key.replaceAll("[^A-Za-z0-9_\\-]", "_");
+		}
+	}
+
+	/**
+	 * @return content of the properties file, or null if the modules of the job are not known yet
+	 * @throws AbortException if no module has sources
+	 */
+	public static String generate(AnalysisContext context, MavenModuleSet project, SonarPublisher publisher) throws IOException, InterruptedException {
+		MavenModule rootModule = project.getRootModule();
+		if (rootModule == null) {
+			return null;
+		}
+		Module root = toModule(rootModule);
+		List<Module> modules = new ArrayList<Module>();
+		for (MavenModule module : project.getModules()) {
+			if (module != rootModule) {
+				modules.add(toModule(module));
+			}
+		}
+
+		// Check the layout of all the modules in one call
+		List<String> paths = new ArrayList<String>();
+		paths.add(root.relativePath);
+		for (Module module : modules) {
+			paths.add(module.relativePath);
+		}
+		boolean[] layout = context.getWorkspace().act(new LayoutProbe(paths));
+		root.hasSources = layout[0];
+		root.hasBinaries = layout[1];
+		for (int i = 0; i < modules.size(); i++) {
+			modules.get(i).hasSources = layout[2 * (i + 1)];
+			modules.get(i).hasBinaries = layout[2 * (i + 1) + 1];
+		}
+
+		PrintStream logger = context.getListener().getLogger();
+		boolean analyzed = root.hasSources;
+		for (Module module : modules) {
+			if (module.hasSources) {
+				analyzed = true;
+			} else {
+				logger.println("[SonarPlugin] [INFO] No " + SOURCES + " in module " + module.key + ", not analyzed");
+			}
+		}
+		if (!analyzed) {
+			throw new AbortException("No " + SOURCES + " in the modules of the project, nothing to analyze");
+		}
+
+		String arguments = StringUtils.defaultString(context.getInstallation().getAdditionalProperties()) + " "
+				+ publisher.getJobAdditionalProperties();
+		return render(root, modules, publisher.getBranch(), publisher.getLanguage()) + toRunnerProperties(context.expand(arguments), logger);
+	}
+
+	/**
+	 * @param arguments additional Maven arguments
+	 * @return properties set by the <tt>-D</tt> arguments
+	 */
+	static String toRunnerProperties(String arguments, PrintStream logger) {
+		StringBuilder out = new StringBuilder();
+		String[] tokens = Util.tokenize(arguments);
+		for (int i = 0; i < tokens.length; i++) {
+			String argument = tokens[i];
+			if (argument.equals("-D") && i + 1 < tokens.length) {
+				// Maven also accepts "-D key=value"
+				argument = "-D" + tokens[++i];
+			}
+			int separator = argument.indexOf('=');
+			if (argument.startsWith("-D") && separator > 2) {
+				append(out, "", argument.substring(2, separator), argument.substring(separator + 1));
+			} else if (argument.startsWith("-D") && argument.length() > 2 && separator < 0) {
+				// As Maven does
+				append(out, "", argument.substring(2), "true");
+			} else {
+				logger.println("[SonarPlugin] [WARN] Maven argument " + argument + " ignored by sonar-runner");
+			}
+		}
+		return out.toString();
+	}
+
+	private static Module toModule(MavenModule module) {
+		return new Module(module.getModuleName().groupId + ":" + module.getModuleName().artifactId, module.getDisplayName(),
+				module.getVersion(), module.getRelativePath());
+	}
+
+	static String render(Module root, List<Module> modules, String branch, String language) {
+		StringBuilder out = new StringBuilder();
+		append(out, "", "sonar.projectKey", root.key);
+		append(out, "", "sonar.projectName", root.name);
+		append(out, "", "sonar.projectVersion", root.version);
+		append(out, "", "sonar.branch", branch);
+		append(out, "", "sonar.language", language);
+		appendLayout(out, "", root.relativePath.length() == 0 ? "" : root.relativePath + "/", root);
+
+		List<Module> analyzed = new ArrayList<Module>();
+		for (Module module : modules) {
+			if (module.hasSources) {
+				analyzed.add(module);
+			}
+		}
+		List<String> ids = getUniqueIds(analyzed);
+		if (!analyzed.isEmpty()) {
+			append(out, "", "sonar.modules", StringUtils.join(ids.iterator(), ','));
+		}
+		for (int i = 0; i < analyzed.size(); i++) {
+			Module module = analyzed.get(i);
+			String prefix = ids.get(i) + ".";
+			append(out, prefix, "sonar.projectKey", module.key);
+			append(out, prefix, "sonar.projectName", module.name);
+			// sonar-runner runs from the workspace
+			append(out, prefix, "sonar.projectBaseDir", module.relativePath);
+			appendLayout(out, prefix, "", module);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Keys which only differ by the characters replaced in the identifiers would collide: an index is appended to the
+	 * later ones.
+	 */
+	private static List<String> getUniqueIds(List<Module> modules) {
+		List<String> ids = new ArrayList<String>();
+		Set<String> used = new HashSet<String>();
+		for (Module module : modules) {
+			String id = module.getId();
+			for (int index = 2; !used.add(id); index++) {
+				id = module.getId() + "_" + index;
+			}
+			ids.add(id);
+		}
+		return ids;
+	}
+
+	private static void appendLayout(StringBuilder out, String prefix, String directory, Module module) {
+		if (module.hasSources) {
+			append(out, prefix, "sonar.sources", directory + SOURCES);
+		}
+		if (module.hasBinaries) {
+			append(out, prefix, "sonar.binaries", directory + BINARIES);
+		}
+	}
+
+	private static void append(StringBuilder out, String prefix, String key, String value) {
+		if (StringUtils.isNotBlank(value)) {
+			out.append(prefix).append(key).append('=').append(value.trim()).append('\n');
+		}
+	}
+
+	/**
+	 * For each module, whether its sources and its binaries exist. Runs on the node.
+	 */
+	private static final class LayoutProbe implements FileCallable<boolean[]> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> paths;
+
+		LayoutProbe(List<String> paths) {
+			this.paths = paths;
+		}
+
+		public boolean[] invoke(File workspace, VirtualChannel channel) {
+			boolean[] layout = new boolean[2 * paths.size()];
+			for (int i = 0; i < paths.size(); i++) {
+				File module = paths.get(i).length() == 0 ? workspace : new File(workspace, paths.get(i));
+				layout[2 * i] = new File(module, SOURCES).isDirectory();
+				layout[2 * i + 1] = new File(module, BINARIES).isDirectory();
+			}
+			return layout;
+		}
+	}
+
+	/**
+	 * Hide utility-class constructor.
+	 */
+	private MavenModulesRunnerProperties() {
+	}
+}
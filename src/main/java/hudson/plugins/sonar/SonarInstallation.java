@@ -53,6 +53,21 @@ public class SonarInstallation {
 	 */
 	private final boolean fourOrHigher;
 
+	/**
+	 * @since 1.6.1.thales.16
+	 */
+	private final boolean seedNodeRepository;
+
+	/**
+	 * @since 1.6.1.thales.16
+	 */
+	private final boolean adaptiveAdmission;
+
+	/**
+	 * @since 1.6.1.thales.16
+	 */
+	private final boolean probeServer;
+
 	public SonarInstallation(String name) {
 		this(name, false, null, null, null, null, null, null, null, null, null);
 	}
@@ -61,7 +76,8 @@ public class SonarInstallation {
 	public SonarInstallation(String name, boolean disabled,
 			String serverUrl, String serverPublicUrl,
 			String databaseUrl, String databaseDriver, String databaseLogin, String databasePassword,
-			String mojoVersion, String additionalProperties, String additionalRunnerProperties, TriggersConfig triggers, boolean fourOrHigher) {
+			String mojoVersion, String additionalProperties, String additionalRunnerProperties, TriggersConfig triggers, boolean fourOrHigher,
+			boolean seedNodeRepository, boolean adaptiveAdmission, boolean probeServer) {
 		this.name = name;
 		this.disabled = disabled;
 		this.serverUrl = serverUrl;
@@ -75,6 +91,35 @@ public class SonarInstallation {
 		this.additionalRunnerProperties = additionalRunnerProperties;
 		this.triggers = triggers;
 		this.fourOrHigher = fourOrHigher;
+		this.seedNodeRepository = seedNodeRepository;
+		this.adaptiveAdmission = adaptiveAdmission;
+		this.probeServer = probeServer;
+	}
+
+	public SonarInstallation(String name, boolean disabled,
+			String serverUrl, String serverPublicUrl,
+			String databaseUrl, String databaseDriver, String databaseLogin, String databasePassword,
+			String mojoVersion, String additionalProperties, String additionalRunnerProperties, TriggersConfig triggers, boolean fourOrHigher,
+			boolean seedNodeRepository, boolean adaptiveAdmission) {
+		this(name, disabled, serverUrl, serverPublicUrl,databaseUrl,databaseDriver,databaseLogin,databasePassword,mojoVersion,
+				additionalProperties,additionalRunnerProperties,triggers,fourOrHigher,seedNodeRepository,adaptiveAdmission,false);
+	}
+
+	public SonarInstallation(String name, boolean disabled,
+			String serverUrl, String serverPublicUrl,
+			String databaseUrl, String databaseDriver, String databaseLogin, String databasePassword,
+			String mojoVersion, String additionalProperties, String additionalRunnerProperties, TriggersConfig triggers, boolean fourOrHigher,
+			boolean seedNodeRepository) {
+		this(name, disabled, serverUrl, serverPublicUrl,databaseUrl,databaseDriver,databaseLogin,databasePassword,mojoVersion,
+				additionalProperties,additionalRunnerProperties,triggers,fourOrHigher,seedNodeRepository,false);
+	}
+
+	public SonarInstallation(String name, boolean disabled,
+			String serverUrl, String serverPublicUrl,
+			String databaseUrl, String databaseDriver, String databaseLogin, String databasePassword,
+			String mojoVersion, String additionalProperties, String additionalRunnerProperties, TriggersConfig triggers, boolean fourOrHigher) {
+		this(name, disabled, serverUrl, serverPublicUrl,databaseUrl,databaseDriver,databaseLogin,databasePassword,mojoVersion,
+				additionalProperties,additionalRunnerProperties,triggers,fourOrHigher,false);
 	}
 	
 	public SonarInstallation(String name, boolean disabled,
@@ -157,10 +202,60 @@ public class SonarInstallation {
 		return triggers;
 	}
 
+	/**
+	 * @return true if the server is 4.0 or higher, as probed when the server is probed, as configured otherwise
+	 */
 	public boolean isFourOrHigher(){
+		if (probeServer) {
+			Boolean probed = SonarServerProbe.isFourOrHigher(this);
+			if (probed != null) {
+				return probed;
+			}
+		}
 		return fourOrHigher;
 	}
 
+	/**
+	 * @return true if the server was declared as 4.0 or higher in the configuration
+	 * @since 1.6.1.thales.16
+	 */
+	public boolean isConfiguredFourOrHigher() {
+		return fourOrHigher;
+	}
+
+	/**
+	 * @return true if the server is polled in the background, so that analyses are not launched while it is down
+	 * @since 1.6.1.thales.16
+	 */
+	public boolean isProbeServer() {
+		return probeServer;
+	}
+
+	/**
+	 * @return true if the Maven artifacts needed by the analysis are seeded once per node and copied into the
+	 *         private repository of the jobs
+	 * @since 1.6.1.thales.16
+	 */
+	public boolean isSeedNodeRepository() {
+		return seedNodeRepository;
+	}
+
+	/**
+	 * @return true if new analyses are held while the Sonar server is busy
+	 * @since 1.6.1.thales.16
+	 */
+	public boolean isAdaptiveAdmission() {
+		return adaptiveAdmission;
+	}
+
+	/**
+	 * @return controller of the analyses launched against the server of this installation
+	 * @since 1.6.1.thales.16
+	 */
+	public AdmissionController getAdmissionController() {
+		return AdmissionController.get(this);
+	}
+
 	public String getServerLink() {
 		String url = StringUtils.defaultIfEmpty(
 				StringUtils.trimToEmpty(getServerPublicUrl()),
@@ -0,0 +1,89 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.maven.MavenArgumentInterceptorAction;
+import hudson.maven.MavenModuleSetBuild;
+import hudson.model.Computer;
+import hudson.plugins.sonar.utils.SonarMaven;
+import hudson.util.ArgumentListBuilder;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Adds the sonar goal and its arguments to the Maven execution of a Maven job, so that the analysis runs within
+ * the build instead of a second Maven execution. Added by {@link SonarPublisher} before the build starts.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public class SonarMavenArgumentInterceptor implements MavenArgumentInterceptorAction {
+	private final transient SonarPublisher publisher;
+	private final transient SonarInstallation installation;
+	private final transient ChangedFilesPreview preview;
+
+	/**
+	 * @param preview preview of the changed files to run instead of a full analysis, or null
+	 */
+	public SonarMavenArgumentInterceptor(SonarPublisher publisher, SonarInstallation installation, ChangedFilesPreview preview) {
+		this.publisher = publisher;
+		this.installation = installation;
+		this.preview = preview;
+	}
+
+	/**
+	 * @return preview of the changed files run instead of a full analysis, or null
+	 */
+	public ChangedFilesPreview getPreview() {
+		return preview;
+	}
+
+	/**
+	 * @return null, the goals of the job are kept
+	 */
+	public String getGoalsAndOptions(MavenModuleSetBuild build) {
+		return null;
+	}
+
+	public ArgumentListBuilder intercept(ArgumentListBuilder mavenargs, MavenModuleSetBuild build) {
+		if (publisher == null || installation == null) {
+			// Loaded from disk, the build is over
+			return mavenargs;
+		}
+		mavenargs.add(SonarMaven.getSonarGoal(installation));
+		mavenargs.addTokenized(StringUtils.trimToEmpty(installation.getAdditionalProperties()));
+		mavenargs.addTokenized(publisher.getJobAdditionalProperties());
+		SonarMaven.appendSonarArguments(mavenargs, isUnix(), installation, publisher);
+		SonarMaven.appendPreviewArguments(mavenargs, isUnix(), installation, preview);
+		return mavenargs;
+	}
+
+	private static boolean isUnix() {
+		Computer computer = Computer.currentComputer();
+		return computer == null || !Boolean.FALSE.equals(computer.isUnix());
+	}
+
+	public String getIconFileName() {
+		return null;
+	}
+
+	public String getDisplayName() {
+		return null;
+	}
+
+	public String getUrlName() {
+		return null;
+	}
+}
@@ -15,12 +15,20 @@
  */
 package hudson.plugins.sonar;
 
+import hudson.AbortException;
 import hudson.CopyOnWrite;
 import hudson.EnvVars;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.Util;
+import hudson.matrix.Combination;
+import hudson.matrix.MatrixAggregatable;
+import hudson.matrix.MatrixAggregator;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixConfiguration;
+import hudson.matrix.MatrixProject;
+import hudson.matrix.MatrixRun;
 import hudson.maven.AbstractMavenProject;
 import hudson.maven.MavenModule;
 import hudson.maven.MavenModuleSet;
@@ -32,12 +40,19 @@ import hudson.model.BuildListener;
 import hudson.model.Hudson;
 import hudson.model.ParametersAction;
 import hudson.model.Result;
+import hudson.model.StringParameterValue;
+import hudson.plugins.sonar.AnalysisPipeline.Stage;
 import hudson.plugins.sonar.model.LightProjectConfig;
+import hudson.plugins.sonar.model.ReportsConfig;
 import hudson.plugins.sonar.model.TriggersConfig;
 import hudson.plugins.sonar.template.SonarPomGenerator;
+import hudson.plugins.sonar.utils.InputFingerprint;
 import hudson.plugins.sonar.utils.MagicNames;
+import hudson.plugins.sonar.utils.Preflight;
 import hudson.plugins.sonar.utils.SonarMaven;
+import hudson.plugins.sonar.utils.SonarServerClient;
 import hudson.plugins.sonar.utils.Utils;
+import hudson.scheduler.CronTabList;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Maven;
@@ -45,13 +60,15 @@ import hudson.tasks.Notifier;
 import hudson.tasks.Publisher;
 import hudson.tasks.Maven.MavenInstallation;
 import hudson.util.FormValidation;
-import hudson.util.LogTaskListener;
+
+import antlr.ANTLRException;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Calendar;
 import java.util.List;
-import java.util.logging.Level;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import net.sf.json.JSONObject;
@@ -69,7 +86,7 @@ import org.kohsuke.stapler.StaplerRequest;
  * they should be deprecated and transient so that they won't show up in XML
  * when writing back
  */
-public class SonarPublisher extends Notifier {
+public class SonarPublisher extends Notifier implements MatrixAggregatable {
 	private static final Logger LOG = Logger.getLogger(SonarPublisher.class.getName());
 
 	/**
@@ -114,6 +131,70 @@ public class SonarPublisher extends Notifier {
 	 */
 	private TriggersConfig triggers;
 
+	/**
+	 * How the analysis of a Maven project is run, see the MAVEN_ANALYSIS_* constants. Optional.
+	 * 
+	 * @since 1.6.1.thales.16
+	 */
+	private String mavenAnalysisMode;
+
+	/**
+	 * Run a preview analysis of the changed files only, for builds of another branch than {@link #branch}.
+	 * 
+	 * @since 1.6.1.thales.16
+	 */
+	private boolean previewChangedFiles;
+
+	/**
+	 * Where the analysis of a matrix project runs, see the MATRIX_ANALYSIS_* constants. Optional.
+	 * 
+	 * @since 1.6.1.thales.16
+	 */
+	private String matrixAnalysisMode;
+
+	/**
+	 * Axis values of the combination analyzed for the whole matrix, such as "jdk=7,os=linux". Optional.
+	 * 
+	 * @since 1.6.1.thales.16
+	 */
+	private String matrixCombination;
+
+	/**
+	 * Every combination of a matrix project is analyzed.
+	 */
+	public static final String MATRIX_ANALYSIS_ALL = "all";
+
+	/**
+	 * A single combination of a matrix project is analyzed, the others link to its analysis.
+	 */
+	public static final String MATRIX_ANALYSIS_COMBINATION = "combination";
+
+	/**
+	 * The parent build of a matrix project is analyzed once the combinations are built, the combinations link to its
+	 * analysis.
+	 */
+	public static final String MATRIX_ANALYSIS_PARENT = "parent";
+
+	/**
+	 * Separate Maven execution of the sonar goal, resolving what it needs.
+	 */
+	public static final String MAVEN_ANALYSIS_DEFAULT = "default";
+
+	/**
+	 * Separate Maven execution of the sonar goal, offline and on the outputs of the build.
+	 */
+	public static final String MAVEN_ANALYSIS_REUSE_OUTPUTS = "reuseOutputs";
+
+	/**
+	 * Sonar goal added to the Maven execution of the build, see {@link SonarMavenArgumentInterceptor}.
+	 */
+	public static final String MAVEN_ANALYSIS_INLINE = "inline";
+
+	/**
+	 * Embedded sonar-runner on the modules recorded by the build, see {@link MavenModulesRunnerProperties}.
+	 */
+	public static final String MAVEN_ANALYSIS_RUNNER = "runner";
+
 	// =================================================
 	// Next fields available only for free-style projects
 
@@ -151,7 +232,6 @@ public class SonarPublisher extends Notifier {
 		this(installationName, null, null, triggers, jobAdditionalProperties, mavenOpts, mavenInstallationName, rootPom, lightProject);
 	}
 
-	@DataBoundConstructor
 	public SonarPublisher(String installationName,
 			String branch,
 			String language,
@@ -159,6 +239,51 @@ public class SonarPublisher extends Notifier {
 			String jobAdditionalProperties, String mavenOpts,
 			String mavenInstallationName, String rootPom,
 			LightProjectConfig lightProject) {
+		this(installationName, branch, language, triggers, jobAdditionalProperties, mavenOpts, mavenInstallationName, rootPom, lightProject, null);
+	}
+
+	public SonarPublisher(String installationName,
+			String branch,
+			String language,
+			TriggersConfig triggers,
+			String jobAdditionalProperties, String mavenOpts,
+			String mavenInstallationName, String rootPom,
+			LightProjectConfig lightProject,
+			String mavenAnalysisMode) {
+		this(installationName, branch, language, triggers, jobAdditionalProperties, mavenOpts, mavenInstallationName, rootPom, lightProject,
+				mavenAnalysisMode, false);
+	}
+
+	/**
+	 * @since 1.6.1.thales.16
+	 */
+	public SonarPublisher(String installationName,
+			String branch,
+			String language,
+			TriggersConfig triggers,
+			String jobAdditionalProperties, String mavenOpts,
+			String mavenInstallationName, String rootPom,
+			LightProjectConfig lightProject,
+			String mavenAnalysisMode,
+			boolean previewChangedFiles) {
+		this(installationName, branch, language, triggers, jobAdditionalProperties, mavenOpts, mavenInstallationName, rootPom, lightProject,
+				mavenAnalysisMode, previewChangedFiles, null, null);
+	}
+
+	/**
+	 * @since 1.6.1.thales.16
+	 */
+	@DataBoundConstructor
+	public SonarPublisher(String installationName,
+			String branch,
+			String language,
+			TriggersConfig triggers,
+			String jobAdditionalProperties, String mavenOpts,
+			String mavenInstallationName, String rootPom,
+			LightProjectConfig lightProject,
+			String mavenAnalysisMode,
+			boolean previewChangedFiles,
+			String matrixAnalysisMode, String matrixCombination) {
 		super();
 		this.configVersion = 1;
 		this.installationName = installationName;
@@ -174,6 +299,12 @@ public class SonarPublisher extends Notifier {
 		this.rootPom = rootPom;
 		// Sonar Light
 		this.lightProject = lightProject;
+		// Maven projects
+		this.mavenAnalysisMode = mavenAnalysisMode;
+		this.previewChangedFiles = previewChangedFiles;
+		// Matrix projects
+		this.matrixAnalysisMode = matrixAnalysisMode;
+		this.matrixCombination = matrixCombination;
 	}
 
 	/**
@@ -222,6 +353,78 @@ public class SonarPublisher extends Notifier {
 		return StringUtils.trimToEmpty(jobAdditionalProperties);
 	}
 
+	/**
+	 * @return how the analysis of a Maven project is run, never null
+	 * @since 1.6.1.thales.16
+	 */
+	public String getMavenAnalysisMode() {
+		return StringUtils.defaultIfEmpty(StringUtils.trimToEmpty(mavenAnalysisMode), MAVEN_ANALYSIS_DEFAULT);
+	}
+
+	/**
+	 * @return true, if the sonar goal of a Maven project runs offline on the outputs of the build
+	 * @since 1.6.1.thales.16
+	 */
+	public boolean isReuseMavenOutputs() {
+		return MAVEN_ANALYSIS_REUSE_OUTPUTS.equals(getMavenAnalysisMode());
+	}
+
+	/**
+	 * @return true, if the sonar goal of a Maven project runs within the Maven execution of the build
+	 * @since 1.6.1.thales.16
+	 */
+	public boolean isInlineMavenAnalysis() {
+		return MAVEN_ANALYSIS_INLINE.equals(getMavenAnalysisMode());
+	}
+
+	/**
+	 * @return true, if a Maven project is analyzed by sonar-runner, without Maven
+	 * @since 1.6.1.thales.16
+	 */
+	public boolean isRunnerMavenAnalysis() {
+		return MAVEN_ANALYSIS_RUNNER.equals(getMavenAnalysisMode());
+	}
+
+	/**
+	 * @return where the analysis of a matrix project runs, never null
+	 * @since 1.6.1.thales.16
+	 */
+	public String getMatrixAnalysisMode() {
+		return StringUtils.defaultIfEmpty(StringUtils.trimToEmpty(matrixAnalysisMode), MATRIX_ANALYSIS_ALL);
+	}
+
+	/**
+	 * @return axis values of the combination analyzed for the whole matrix, empty for the first combination
+	 * @since 1.6.1.thales.16
+	 */
+	public String getMatrixCombination() {
+		return StringUtils.trimToEmpty(matrixCombination);
+	}
+
+	/**
+	 * @return true, if the parent build of a matrix project is analyzed instead of its combinations
+	 * @since 1.6.1.thales.16
+	 */
+	public boolean isMatrixAnalysisOnParent() {
+		return MATRIX_ANALYSIS_PARENT.equals(getMatrixAnalysisMode());
+	}
+
+	/**
+	 * @return true, if only one combination of a matrix project is analyzed
+	 * @since 1.6.1.thales.16
+	 */
+	public boolean isMatrixAnalysisOnCombination() {
+		return MATRIX_ANALYSIS_COMBINATION.equals(getMatrixAnalysisMode());
+	}
+
+	/**
+	 * @return true, if builds of another branch than the configured one only get a preview of their changed files
+	 * @since 1.6.1.thales.16
+	 */
+	public boolean isPreviewChangedFiles() {
+		return previewChangedFiles;
+	}
+
 	/**
 	 * @return true, if we should use triggers from {@link SonarInstallation}
 	 */
@@ -254,6 +457,19 @@ public class SonarPublisher extends Notifier {
 		return triggers;
 	}
 
+	/**
+	 * @return triggers configuration of the job, or of the installation if the job uses the global one. Null if the
+	 *         installation doesn't exist anymore.
+	 * @since 1.6.1.thales.16
+	 */
+	public TriggersConfig getEffectiveTriggers() {
+		if (isUseLocalTriggers()) {
+			return getTriggers();
+		}
+		SonarInstallation installation = getInstallation();
+		return installation == null ? null : installation.getTriggers();
+	}
+
 	/**
 	 * @return name of {@link hudson.tasks.Maven.MavenInstallation}
 	 */
@@ -289,6 +505,13 @@ public class SonarPublisher extends Notifier {
 		return currentProject instanceof MavenModuleSet;
 	}
 
+	/**
+	 * @since 1.6.1.thales.16
+	 */
+	public static boolean isMatrixProject(AbstractProject currentProject) {
+		return currentProject instanceof MatrixProject;
+	}
+
 	public SonarInstallation getInstallation() {
 		DescriptorImpl sonarDescriptor = Hudson.getInstance().getDescriptorByType(DescriptorImpl.class);
 		if (StringUtils.isEmpty(getInstallationName()) && sonarDescriptor.getInstallations().length > 0) {
@@ -309,29 +532,449 @@ public class SonarPublisher extends Notifier {
 					Hudson.getInstance().getDescriptorByType(DescriptorImpl.class).getInstallations().length);
 		} else if (sonarInstallation.isDisabled()) {
 			skipLaunchMsg = Messages.SonarPublisher_InstallDisabled(sonarInstallation.getName());
-		} else if (isUseGlobalTriggers()) {
-			skipLaunchMsg = sonarInstallation.getTriggers().isSkipSonar(build);
 		} else {
-			skipLaunchMsg = getTriggers().isSkipSonar(build);
+			TriggersConfig activeTriggers = isUseGlobalTriggers() ? sonarInstallation.getTriggers() : getTriggers();
+			String triggersMsg = activeTriggers.isSkipSonar(build);
+			Calendar now = Calendar.getInstance();
+			if (triggersMsg == null && activeTriggers.isDeferred(build, now)) {
+				defer(build, null);
+				triggersMsg = Messages.SonarPublisher_Deferred(activeTriggers.getAnalysisWindow());
+			}
+			if (triggersMsg == null) {
+				Calendar nextAnalysis = activeTriggers.getDeferredAnalysis(build, now);
+				if (nextAnalysis != null) {
+					defer(build, nextAnalysis.getTimeInMillis());
+					triggersMsg = Messages.SonarPublisher_DeferredToNextAnalysis(nextAnalysis.getTime());
+				}
+			}
+			if (triggersMsg == null && sonarInstallation.isProbeServer()) {
+				triggersMsg = checkServer(build, listener, sonarInstallation, activeTriggers);
+			}
+			skipLaunchMsg = triggersMsg;
 		}
 		if (skipLaunchMsg != null) {
 			listener.getLogger().println(skipLaunchMsg);
 			return true;
 		}
+		DeferredAnalysisCause deferred = build.getCause(DeferredAnalysisCause.class);
+		if (deferred != null) {
+			listener.getLogger().println("[SonarPlugin] [INFO] Deferred analysis of build #" + deferred.getBuildNumber()
+					+ ", on the state of the job after this build");
+		}
 		return false;
 	}
 
+	/**
+	 * Doesn't launch an analysis against a server known to be down: the analysis is deferred if the job has an
+	 * analysis window, the build fails otherwise.
+	 * 
+	 * @return message explaining why the analysis is skipped, or null if the server is up
+	 */
+	private String checkServer(AbstractBuild<?, ?> build, BuildListener listener, SonarInstallation sonarInstallation,
+			TriggersConfig activeTriggers) {
+		SonarServerProbe.Result probe = SonarServerProbe.getResult(sonarInstallation);
+		if (probe.isUp()) {
+			return null;
+		}
+		return giveUpUnavailableServer(build, sonarInstallation, activeTriggers, probe);
+	}
+
+	/**
+	 * Gives up the analysis against a server that is not available: the analysis is deferred if the job has an
+	 * analysis window, the build fails otherwise.
+	 * 
+	 * @param reason why the server is not available
+	 * @return message explaining why the analysis is not launched
+	 */
+	private static String giveUpUnavailableServer(AbstractBuild<?, ?> build, SonarInstallation sonarInstallation,
+			TriggersConfig activeTriggers, Object reason) {
+		String server = new SonarServerClient(sonarInstallation).getUrl();
+		if (activeTriggers != null && activeTriggers.getAnalysisWindow() != null) {
+			defer(build, null);
+			return Messages.SonarPublisher_ServerDownDeferred(server, reason);
+		}
+		build.setResult(Result.FAILURE);
+		return Messages.SonarPublisher_ServerDown(server, reason);
+	}
+
+	/**
+	 * Records the analysis of the build, to be run by a later build once the analysis window is open. The later build
+	 * analyzes the state of the job at that time: Jenkins can't check out an arbitrary revision for every SCM.
+	 * 
+	 * @param notBefore time before which the analysis must not run, or null
+	 */
+	private static void defer(AbstractBuild<?, ?> build, Long notBefore) {
+		DeferredAnalyses.get().defer(new DeferredAnalyses.Entry(build.getProject().getFullName(), build.getNumber(),
+				System.currentTimeMillis(), AnalysisPriority.of(build), notBefore));
+	}
+
+	/**
+	 * Keeps track of a successful analysis of the build: a failed one does not delay the next analysis.
+	 * 
+	 * @param duration duration of the analysis in milliseconds, or null if unknown
+	 */
+	private static void recordAnalysis(AbstractBuild<?, ?> build, Long duration) {
+		String job = build.getProject().getFullName();
+		if (duration == null) {
+			AnalysisTimestamps.get().record(job, System.currentTimeMillis());
+		} else {
+			AnalysisTimestamps.get().record(job, System.currentTimeMillis(), duration);
+		}
+		markDeferredDone(build);
+	}
+
+	private static void markDeferredDone(AbstractBuild<?, ?> build) {
+		DeferredAnalysisCause deferred = build.getCause(DeferredAnalysisCause.class);
+		if (deferred != null) {
+			DeferredAnalyses.get().done(build.getProject().getFullName(), deferred.getBuildNumber());
+		}
+	}
+
+	/**
+	 * In inline mode, adds the sonar goal to the Maven execution of a Maven project before it starts, as a preview of
+	 * the changed files if the build is on another branch.
+	 */
+	@Override
+	public boolean prebuild(AbstractBuild<?, ?> build, BuildListener listener) {
+		if (isInlineMavenAnalysis() && isMavenBuilder(build.getProject())) {
+			SonarInstallation sonarInstallation = getInstallation();
+			if (!isSkip(build, listener, sonarInstallation)) {
+				ChangedFilesPreview preview;
+				try {
+					preview = getPreview(build, build.getEnvironment(listener), listener);
+				} catch (IOException e) {
+					Util.displayIOException(e, listener);
+					e.printStackTrace(listener.fatalError("command execution failed"));
+					return false;
+				} catch (InterruptedException e) {
+					build.setResult(Result.ABORTED);
+					return false;
+				}
+				if (preview != null && preview.getChangedFiles().isEmpty()) {
+					markDeferredDone(build);
+					return true;
+				}
+				listener.getLogger().println("[SonarPlugin] [INFO] Sonar analysis added to the Maven execution");
+				build.getActions().add(new SonarMavenArgumentInterceptor(this, sonarInstallation, preview));
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Previews the changed files of a build of another branch than the configured one, if asked.
+	 * 
+	 * @return preview to run instead of a full analysis, or null for a full analysis
+	 */
+	private ChangedFilesPreview getPreview(AbstractBuild<?, ?> build, EnvVars env, BuildListener listener) {
+		if (!isPreviewChangedFiles()) {
+			return null;
+		}
+		ChangedFilesPreview preview = ChangedFilesPreview.of(build, env, env.expand(StringUtils.defaultString(getBranch())));
+		if (preview != null && preview.getChangedFiles().isEmpty()) {
+			listener.getLogger().println(Messages.SonarPublisher_NoChangedFiles(preview.getBranch()));
+		} else if (preview != null) {
+			listener.getLogger().println("[SonarPlugin] [INFO] Preview analysis of the " + preview.getChangedFiles().size()
+					+ " files changed in this build of branch " + preview.getBranch());
+		}
+		return preview;
+	}
+
 	@Override
 	public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) {
 		final SonarInstallation sonarInstallation = getInstallation();
+		if (isInlineMavenAnalysis() && isMavenBuilder(build.getProject())) {
+			return recordInlineAnalysis(build, launcher, listener, sonarInstallation);
+		}
+		if (build instanceof MatrixRun) {
+			String matrixMsg = getMatrixSkip((MatrixRun) build, listener);
+			if (matrixMsg != null) {
+				listener.getLogger().println(matrixMsg);
+				return true;
+			}
+		}
 		if (isSkip(build, listener, sonarInstallation)) {
 			return true;
 		}
 
+		final AnalysisContext context = newContext(build, launcher, listener, sonarInstallation);
+		if (context == null) {
+			return false;
+		}
+
+		ChangedFilesPreview preview = getPreview(build, context.getEnv(), listener);
+		if (preview != null && preview.getChangedFiles().isEmpty()) {
+			markDeferredDone(build);
+			return true;
+		}
+		context.setPreview(preview);
+
+		String fingerprint = null;
+		TriggersConfig triggers = getEffectiveTriggers();
+		if (context.getPreview() == null && triggers != null && triggers.isSkipUnchangedInputs()) {
+			try {
+				fingerprint = computeFingerprint(context);
+			} catch (InterruptedException e) {
+				build.setResult(Result.ABORTED);
+				return false;
+			}
+			if (fingerprint != null && isUnchanged(context, fingerprint)) {
+				return true;
+			}
+		}
+
+		AdmissionController controller = sonarInstallation.isAdaptiveAdmission() ? sonarInstallation.getAdmissionController() : null;
+		boolean sonarSuccess = false;
+		long duration = 0;
+		boolean completed = false;
+		try {
+			// The server is waited for before the global slot, so that analyses held by a busy server don't keep the
+			// analyses of the other servers waiting
+			if (controller != null && !controller.acquire(listener.getLogger())) {
+				listener.getLogger().println(giveUpUnavailableServer(build, sonarInstallation, triggers, controller.describeLastStatus()));
+				return true;
+			}
+			try {
+				AnalysisAdmission.Ticket ticket = AnalysisAdmission.get().acquire(build, listener.getLogger());
+				try {
+					long start = System.currentTimeMillis();
+					sonarSuccess = analyze(context);
+					duration = System.currentTimeMillis() - start;
+					completed = true;
+				} finally {
+					AnalysisAdmission.get().release(ticket);
+				}
+			} finally {
+				if (controller != null) {
+					controller.release(completed);
+				}
+			}
+		} catch (InterruptedException e) {
+			build.setResult(Result.ABORTED);
+			return false;
+		}
+		if (context.getPreview() == null && sonarSuccess) {
+			recordAnalysis(build, duration);
+			String url = resolveSonarUrl(context);
+			addSonarAction(build, url);
+			if (fingerprint != null) {
+				saveFingerprint(context, new InputFingerprint.Record(fingerprint, build.getNumber(), url));
+			}
+		} else {
+			// A preview publishes nothing to the server, and a failed analysis is retried by the next build: the
+			// dashboard and the timings of the full analyses are left as they are
+			markDeferredDone(build);
+		}
+		if (!sonarSuccess) {
+			// returning false has no effect on the global build status so need to do it manually
+			build.setResult(Result.FAILURE);
+		}
+		LOG.info("Sonar build completed: " + build.getResult());
+		return sonarSuccess;
+	}
+
+	/**
+	 * Computes the fingerprint of the inputs of a sonar-runner analysis on the node: the resolved source directories,
+	 * the binaries directories, the reports, including the TUSAR ones passed by the build, the server and the rendered
+	 * runner properties of the installation and of the job. The resolved source directories are kept in the context
+	 * for the analysis.
+	 * 
+	 * @return fingerprint, or null if the inputs of the analysis are not known before it runs
+	 */
+	private String computeFingerprint(AnalysisContext context) throws InterruptedException {
+		LightProjectConfig lightProjectConfig = getLightProject();
+		if (lightProjectConfig == null || lightProjectConfig.getBuildWay() == null
+				|| !LightProjectConfig.JAVA_RUNNER.equals(lightProjectConfig.getBuildWay().getValue())) {
+			return null;
+		}
+		try {
+			List<String> sourceDirs = Utils.getProjectSrcDirsList(lightProjectConfig.getProjectSrcDir(), context);
+			context.setSourceDirs(sourceDirs);
+			SonarInstallation installation = context.getInstallation();
+			ReportsConfig reports = lightProjectConfig.getReports();
+			String tusarReportsPaths = reports != null && reports.isUseTusarReports() ? getTusarReportsPaths(context.getBuild()) : null;
+			InputFingerprint fingerprint = new InputFingerprint("sonar.host.url=" + StringUtils.defaultString(installation.getServerUrl())
+					+ "\nsonar.jdbc.url=" + StringUtils.defaultString(installation.getDatabaseUrl())
+					+ "\n" + context.expand(StringUtils.defaultString(installation.getAdditionalRunnerProperties()))
+					+ "\n" + getRunnerProperties(context, lightProjectConfig, sourceDirs)
+					+ (tusarReportsPaths == null ? "" : "\nsonar.tusar.reportsPaths=" + tusarReportsPaths));
+			for (String sourceDir : sourceDirs) {
+				fingerprint.add("Source directory", sourceDir);
+			}
+			for (String binDir : StringUtils.split(StringUtils.defaultString(lightProjectConfig.getProjectBinDir()), ',')) {
+				if (StringUtils.isNotBlank(binDir)) {
+					fingerprint.add("Binaries directory", context.expand(binDir.trim()));
+				}
+			}
+			if (lightProjectConfig.isReuseReports() && reports != null && !reports.isUseTusarReports()) {
+				addReportPath(fingerprint, context, "Clover report", reports.getCloverReportPath());
+				addReportPath(fingerprint, context, "Cobertura report", reports.getCoberturaReportPath());
+				addReportPath(fingerprint, context, "Surefire reports", reports.getSurefireReportsPath());
+			}
+			if (tusarReportsPaths != null) {
+				for (String reportsPath : StringUtils.split(tusarReportsPaths, ",;")) {
+					// Paths may be prefixed by the kind of report, such as "tests:"
+					String path = reportsPath.trim().replaceFirst("^[a-zA-Z]{2,}:", "");
+					addReportPath(fingerprint, context, "TUSAR reports", path);
+				}
+			}
+			return context.getWorkspace().act(fingerprint);
+		} catch (IOException e) {
+			context.getListener().getLogger().println("[SonarPlugin] [WARN] Fingerprint of the analyzed inputs not computed: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @return reports paths passed by the TUSAR notifier to sonar-runner, or null if none
+	 */
+	static String getTusarReportsPaths(AbstractBuild<?, ?> build) {
+		for (ParametersAction parameters : build.getActions(ParametersAction.class)) {
+			if (parameters.getParameter("sonar.tusar.reportsPaths") instanceof StringParameterValue) {
+				return StringUtils.trimToNull(((StringParameterValue) parameters.getParameter("sonar.tusar.reportsPaths")).value);
+			}
+		}
+		return null;
+	}
+
+	private static void addReportPath(InputFingerprint fingerprint, AnalysisContext context, String description, String reportPath) {
+		if (StringUtils.isNotBlank(reportPath)) {
+			fingerprint.add(description, context.expand(reportPath.trim()));
+		}
+	}
+
+	/**
+	 * Compares the fingerprint with the one of the last successful analysis of the job on the node. When they match,
+	 * the build links to the results of that analysis.
+	 * 
+	 * @return true, if the analysis can be skipped
+	 */
+	private boolean isUnchanged(AnalysisContext context, String fingerprint) throws InterruptedException {
+		AbstractBuild<?, ?> build = context.getBuild();
+		InputFingerprint.Record last;
+		try {
+			last = InputFingerprint.load(context.getNode(), build.getProject().getFullName());
+		} catch (IOException e) {
+			context.getListener().getLogger().println("[SonarPlugin] [WARN] Fingerprint of the last analysis not read: " + e.getMessage());
+			return false;
+		}
+		if (last == null || !fingerprint.equals(last.getFingerprint())) {
+			return false;
+		}
+		context.getListener().getLogger().println(Messages.SonarPublisher_Unchanged(last.getBuildNumber(),
+				StringUtils.defaultString(last.getUrl(), context.getInstallation().getServerLink())));
+		addSonarAction(build, last.getUrl());
+		markDeferredDone(build);
+		return true;
+	}
+
+	private static void saveFingerprint(AnalysisContext context, InputFingerprint.Record record) {
+		try {
+			InputFingerprint.save(context.getNode(), context.getBuild().getProject().getFullName(), record);
+		} catch (IOException e) {
+			context.getListener().getLogger().println("[SonarPlugin] [WARN] Fingerprint of the analyzed inputs not saved: " + e.getMessage());
+		} catch (InterruptedException e) {
+			// Only used to skip the next analysis
+		}
+	}
+
+	/**
+	 * @return message explaining why the combination is not analyzed, or null if it is analyzed
+	 */
+	private String getMatrixSkip(MatrixRun run, BuildListener listener) {
+		if (isMatrixAnalysisOnParent()) {
+			return Messages.SonarPublisher_MatrixParent();
+		}
+		if (isMatrixAnalysisOnCombination()) {
+			MatrixConfiguration analyzed = getAnalyzedConfiguration(run.getParent().getParent());
+			if (analyzed == null) {
+				listener.getLogger().println("[SonarPlugin] [WARN] No active combination matches " + getMatrixCombination()
+						+ ", every combination is analyzed");
+			} else if (!analyzed.getCombination().equals(run.getParent().getCombination())) {
+				return Messages.SonarPublisher_MatrixCombination(analyzed.getCombination().toString());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the first active configuration matching the configured combination, or null if none matches
+	 */
+	private MatrixConfiguration getAnalyzedConfiguration(MatrixProject project) {
+		Combination expected = StringUtils.isEmpty(getMatrixCombination()) ? null : Combination.fromString(getMatrixCombination());
+		for (MatrixConfiguration configuration : project.getActiveConfigurations()) {
+			if (expected == null || configuration.getCombination().entrySet().containsAll(expected.entrySet())) {
+				return configuration;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The parent build of a matrix project only has a flyweight workspace, without the outputs of the combinations:
+	 * the workspace of the analyzed combination is analyzed instead.
+	 * 
+	 * @return run of the analyzed combination, or null if its workspace is not available
+	 */
+	private MatrixRun getWorkspaceRun(MatrixBuild build) {
+		MatrixConfiguration configuration = getAnalyzedConfiguration(build.getProject());
+		MatrixRun run = configuration == null ? null : build.getRun(configuration.getCombination());
+		if (run == null || run.getBuiltOn() == null || run.getWorkspace() == null) {
+			return null;
+		}
+		return run;
+	}
+
+	/**
+	 * Analyzes the parent build of a matrix project, or finds the analysis of the chosen combination, once all the
+	 * combinations are built. The combinations which were not analyzed then link to that analysis.
+	 * 
+	 * @since 1.6.1.thales.16
+	 */
+	public MatrixAggregator createAggregator(MatrixBuild build, Launcher launcher, BuildListener listener) {
+		if (!isMatrixAnalysisOnParent() && !isMatrixAnalysisOnCombination()) {
+			return null;
+		}
+		return new MatrixAggregator(build, launcher, listener) {
+			@Override
+			public boolean endBuild() throws InterruptedException, IOException {
+				boolean success = true;
+				if (isMatrixAnalysisOnParent()) {
+					success = perform(build, launcher, listener);
+				} else {
+					MatrixConfiguration configuration = getAnalyzedConfiguration(build.getProject());
+					MatrixRun run = configuration == null ? null : build.getRun(configuration.getCombination());
+					BuildSonarAction combinationAnalysis = run == null ? null : run.getAction(BuildSonarAction.class);
+					if (combinationAnalysis != null) {
+						addSonarAction(build, combinationAnalysis.getUrl());
+					}
+				}
+				BuildSonarAction analysis = build.getAction(BuildSonarAction.class);
+				if (analysis != null) {
+					for (MatrixRun run : build.getExactRuns()) {
+						if (run.getAction(BuildSonarAction.class) == null) {
+							addSonarAction(run, analysis.getUrl());
+							run.save();
+						}
+					}
+				}
+				return success;
+			}
+		};
+	}
+
+	/**
+	 * Runs the analysis the way the job is configured.
+	 */
+	private boolean analyze(AnalysisContext context) {
+		AbstractBuild<?, ?> build = context.getBuild();
 		boolean sonarSuccess = false;
 		LightProjectConfig lightProjectConfig = getLightProject();
-		if (lightProjectConfig == null || lightProjectConfig.getBuildWay()==null){
-			sonarSuccess = executeSonarMaven(build, launcher, listener, sonarInstallation);
+		if (lightProjectConfig == null && isRunnerMavenAnalysis() && isMavenBuilder(build.getProject())) {
+			sonarSuccess = executeSonarRunnerOnModules(context);
+		}
+		else if (lightProjectConfig == null || lightProjectConfig.getBuildWay()==null){
+			sonarSuccess = executeSonarMaven(context);
 		}
 		else {
 			//TODO : refactor
@@ -345,98 +988,11 @@ public class SonarPublisher extends Notifier {
 		    }
 			
 			if (buildWayValue.equals(LightProjectConfig.MAVEN)){
-				sonarSuccess = executeSonarMaven(build, launcher, listener, sonarInstallation);
+				sonarSuccess = executeSonarMaven(context);
 			}
 			else if (buildWayValue.equals(LightProjectConfig.JAVA_RUNNER)){
 				try {
-					EnvVars env = build.getEnvironment(listener);
-					//String javaVersion = lightProjectConfig.getJavaVersion().isEmpty()?"1.5":lightProjectConfig.getJavaVersion();
-
-					//Properties for the java runner
-					StringBuilder propertiesStringBuilder = new StringBuilder();
-					
-					//Since 1.6.1.thales.10, if using the sonar runner, you can fill the new field where you can put the runner properties, thus the following are now optional
-					if (lightProjectConfig.getGroupId()!=null && !lightProjectConfig.getGroupId().trim().isEmpty() && lightProjectConfig.getArtifactId()!=null && !lightProjectConfig.getArtifactId().trim().isEmpty()){
-						propertiesStringBuilder.append("sonar.projectKey=").append(lightProjectConfig.getGroupId()).append(":").append(lightProjectConfig.getArtifactId()).append("\n");
-					}
-					if (lightProjectConfig.getProjectName()!=null && !lightProjectConfig.getProjectName().trim().isEmpty()){
-						propertiesStringBuilder.append("sonar.projectName=").append(lightProjectConfig.getProjectName()).append("\n");
-					}
-					if (lightProjectConfig.getProjectVersion()!=null && !lightProjectConfig.getProjectVersion().trim().isEmpty()){
-						propertiesStringBuilder.append("sonar.projectVersion=").append(lightProjectConfig.getProjectVersion()).append("\n");
-					}
-					if (lightProjectConfig.getJavaVersion()!=null && !lightProjectConfig.getJavaVersion().trim().isEmpty()){
-						propertiesStringBuilder.append("sonar.java.source=").append(lightProjectConfig.getJavaVersion()).append("\n");
-						propertiesStringBuilder.append("sonar.java.target=").append(lightProjectConfig.getJavaVersion()).append("\n");
-					}
-
-
-					//Source directories
-					List<String> filePaths = Utils.getProjectSrcDirsList(lightProjectConfig.getProjectSrcDir(), build.getWorkspace(), env);
-					if (!filePaths.isEmpty()){
-						propertiesStringBuilder.append("sonar.sources=");
-						for (String filePath : filePaths){
-							propertiesStringBuilder.append(filePath.replaceAll("\\\\", "/")).append(",");
-						}
-						propertiesStringBuilder.setLength(propertiesStringBuilder.length()-1);
-					}
-					propertiesStringBuilder.append("\n");
-
-
-					//Binaries directory
-					if (!lightProjectConfig.getProjectBinDir().isEmpty()) {
-						propertiesStringBuilder.append("sonar.binaries=").append(lightProjectConfig.getProjectBinDir()).append("\n");
-					}
-
-					//Description
-					if (!lightProjectConfig.getProjectDescription().isEmpty()){
-						propertiesStringBuilder.append("sonar.description=").append(lightProjectConfig.getProjectDescription()).append("\n");
-					}
-
-					//Source encoding
-					if (!lightProjectConfig.getProjectSrcEncoding().isEmpty()){
-						propertiesStringBuilder.append("sonar.sourceEncoding=").append(lightProjectConfig.getProjectSrcEncoding()).append("\n");
-					}
-
-
-					//Reuse report
-					if (lightProjectConfig.isReuseReports()){
-						if (!sonarInstallation.isFourOrHigher()){
-							propertiesStringBuilder.append("sonar.dynamicAnalysis=reuseReports\n");
-						}
-						if (!lightProjectConfig.getReports().isUseTusarReports()){
-							if (lightProjectConfig.getReports().getCloverReportPath()!= null && !lightProjectConfig.getReports().getCloverReportPath().isEmpty()){
-								propertiesStringBuilder.append("sonar.clover.reportsPath=").append(lightProjectConfig.getReports().getCloverReportPath()).append("\n");
-							}
-							if (lightProjectConfig.getReports().getCoberturaReportPath()!= null && !lightProjectConfig.getReports().getCoberturaReportPath().isEmpty()){
-								propertiesStringBuilder.append("sonar.cobertura.reportsPath=").append(lightProjectConfig.getReports().getCoberturaReportPath()).append("\n");
-							}
-							if (lightProjectConfig.getReports().getSurefireReportsPath()!= null && !lightProjectConfig.getReports().getSurefireReportsPath().isEmpty()){
-								propertiesStringBuilder.append("sonar.surefire.reportsPath=").append(lightProjectConfig.getReports().getSurefireReportsPath()).append("\n");
-							}
-						}
-					}
-					if (lightProjectConfig.getSonarRunnerAdditionalProperties()!=null && !lightProjectConfig.getSonarRunnerAdditionalProperties().trim().isEmpty()){
-						propertiesStringBuilder.append(lightProjectConfig.getSonarRunnerAdditionalProperties()).append("\n");
-					}
-					
-					StringBuilder commandLinePropertiesBuilder = new StringBuilder();
-					if (jobAdditionalProperties!=null && !jobAdditionalProperties.isEmpty()){
-						/*String modifiedJobAdditionalProperties = jobAdditionalProperties;
-						if (modifiedJobAdditionalProperties.startsWith("-D")){
-							modifiedJobAdditionalProperties = modifiedJobAdditionalProperties.substring(2);
-						}
-						propertiesStringBuilder.append(modifiedJobAdditionalProperties).append("\n");*/
-
-						for (String modifiedJobAdditionalProperties : jobAdditionalProperties.split("-D")){
-							commandLinePropertiesBuilder.append(modifiedJobAdditionalProperties.trim()).append("\n");
-						}
-					}
-
-					//AM : expand the variables in the configuration
-					String properties = SonarPublisher.expandJenkinsVars(env,propertiesStringBuilder.toString());
-					String commandLineProperties = SonarPublisher.expandJenkinsVars(env,commandLinePropertiesBuilder.toString());
-					sonarSuccess = executeSonarJavaRunner(build, launcher, listener, sonarInstallation,properties,commandLineProperties);
+					sonarSuccess = executeSonarJavaRunner(context, lightProjectConfig);
 				} catch (IOException e) {
 					// TODO Auto-generated catch block
 					e.printStackTrace();
@@ -446,11 +1002,6 @@ public class SonarPublisher extends Notifier {
 				}
 			}
 		}
-		if (!sonarSuccess) {
-			// returning false has no effect on the global build status so need to do it manually
-			build.setResult(Result.FAILURE);
-		}
-		LOG.info("Sonar build completed: " + build.getResult());
 		return sonarSuccess;
 	}
 
@@ -465,17 +1016,200 @@ public class SonarPublisher extends Notifier {
 		return sonarRunner.launch(listener, getInstallation(), lightProject.getBuildWay().getJavaOpts(), properties) == 0;
 	}*/
 
-	private boolean executeSonarJavaRunner(AbstractBuild<?, ?> build,
-			Launcher launcher, 
-			BuildListener listener,
-			SonarInstallation sonarInstallation, 
-			String fileProperties,
-			String commandLineProperties) 
+	/**
+	 * @return context of the analysis, or null if the environment of the build can't be computed
+	 */
+	private AnalysisContext newContext(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, SonarInstallation sonarInstallation) {
+		try {
+			if (build instanceof MatrixBuild) {
+				MatrixRun run = getWorkspaceRun((MatrixBuild) build);
+				if (run != null) {
+					listener.getLogger().println("[SonarPlugin] [INFO] Analyzing the workspace of combination " + run.getParent().getCombination()
+							+ " on " + run.getBuiltOn().getDisplayName());
+					return new AnalysisContext(build, run, run.getBuiltOn().createLauncher(listener), listener, sonarInstallation);
+				}
+				listener.getLogger().println("[SonarPlugin] [WARN] No workspace of a combination available, analyzing the workspace of the parent build");
+			}
+			return new AnalysisContext(build, launcher, listener, sonarInstallation);
+		} catch (IOException e) {
+			Util.displayIOException(e, listener);
+			e.printStackTrace(listener.fatalError("command execution failed"));
+			build.setResult(Result.FAILURE);
+			return null;
+		} catch (InterruptedException e) {
+			build.setResult(Result.ABORTED);
+			return null;
+		}
+	}
+
+	/**
+	 * The analysis ran within the Maven execution of the build: its outcome is the outcome of the build, only the
+	 * link to the dashboard is left to record.
+	 */
+	private boolean recordInlineAnalysis(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, SonarInstallation sonarInstallation) {
+		SonarMavenArgumentInterceptor interceptor = build.getAction(SonarMavenArgumentInterceptor.class);
+		if (interceptor == null) {
+			// Skipped before the build started
+			return true;
+		}
+		build.getActions().remove(interceptor);
+		AnalysisContext context = newContext(build, launcher, listener, sonarInstallation);
+		if (context == null) {
+			return false;
+		}
+		// A failed sonar goal fails the Maven execution, a preview publishes nothing to the server
+		if (interceptor.getPreview() == null && (build.getResult() == null || build.getResult().isBetterOrEqualTo(Result.UNSTABLE))) {
+			addSonarAction(build, resolveSonarUrl(context));
+			// Part of the Maven execution, the duration of the analysis alone is unknown
+			recordAnalysis(build, null);
+		} else {
+			markDeferredDone(build);
+		}
+		return true;
+	}
+
+	/**
+	 * Analyzes the modules of a Maven project with sonar-runner, from what the build recorded.
+	 */
+	private boolean executeSonarRunnerOnModules(AnalysisContext context) {
+		BuildListener listener = context.getListener();
+		try {
+			String properties = MavenModulesRunnerProperties.generate(context, getMavenProject(context.getBuild()), this);
+			if (properties == null) {
+				listener.getLogger().println("[SonarPlugin] [INFO] Modules of the project not known yet, running the sonar goal with Maven");
+				return executeSonarMaven(context);
+			}
+			if (context.getPreview() != null) {
+				properties += toProperties(context.getPreview().getProperties(null, context.getInstallation().isFourOrHigher()));
+			}
+			return new SonarRunner(context).launch(listener, context.getInstallation(), "", properties) == 0;
+		} catch (AbortException e) {
+			listener.getLogger().println("[SonarPlugin] [ERROR] " + e.getMessage());
+			return false;
+		} catch (IOException e) {
+			Util.displayIOException(e, listener);
+			e.printStackTrace(listener.fatalError("command execution failed"));
+			return false;
+		} catch (InterruptedException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Prepares the runner through an {@link AnalysisPipeline}: the source directories, the runner jars and the Java
+	 * executable only depend on the agent, so they are resolved concurrently. A pre-flight check of what they resolved
+	 * to fails the analysis before sonar-runner is started.
+	 */
+	private boolean executeSonarJavaRunner(final AnalysisContext context, final LightProjectConfig lightProjectConfig)
 	throws IOException, InterruptedException 
 	{
-		//SonarRunner sonarRunner = new SonarRunner(build.getProject(), launcher, build.getEnvironment(listener), build.getWorkspace());
-		SonarRunner sonarRunner = new SonarRunner(build, launcher, build.getEnvironment(listener));
-		return sonarRunner.launch(listener, getInstallation(), lightProject.getBuildWay().getJavaOpts(), fileProperties) == 0;
+		final SonarRunner sonarRunner = new SonarRunner(context);
+		final AnalysisPipeline pipeline = new AnalysisPipeline(context);
+		final Stage<List<String>> sources = pipeline.add(new Stage<List<String>>("sources") {
+			@Override
+			protected List<String> run(AnalysisContext context) throws IOException, InterruptedException {
+				// Already resolved for the fingerprint of the inputs
+				List<String> resolved = context.getSourceDirs();
+				return resolved != null ? resolved : Utils.getProjectSrcDirsList(lightProjectConfig.getProjectSrcDir(), context);
+			}
+		});
+		Stage<Void> runnerJars = pipeline.add(new Stage<Void>("runner jars") {
+			@Override
+			protected Void run(AnalysisContext context) throws IOException, InterruptedException {
+				sonarRunner.extract();
+				return null;
+			}
+		});
+		final Stage<String> javaExecutable = pipeline.add(new Stage<String>("JDK") {
+			@Override
+			protected String run(AnalysisContext context) throws IOException, InterruptedException {
+				return sonarRunner.getJavaExecutable(context.getListener());
+			}
+		});
+		Stage<Preflight.Report> preflight = pipeline.add(new Stage<Preflight.Report>("pre-flight", sources, javaExecutable) {
+			@Override
+			protected Preflight.Report run(AnalysisContext context) throws IOException, InterruptedException {
+				return context.getWorkspace().act(newPreflight(context, lightProjectConfig, pipeline.get(sources),
+						pipeline.get(javaExecutable)));
+			}
+		});
+		try {
+			pipeline.start();
+			Preflight.Report report = pipeline.get(preflight);
+			report.print(context.getListener().getLogger());
+			if (report.hasErrors()) {
+				return false;
+			}
+			List<String> sourceDirs = pipeline.get(sources);
+			ChangedFilesPreview preview = context.getPreview();
+			if (preview != null) {
+				sourceDirs = preview.getSourceDirs(sourceDirs);
+				if (sourceDirs.isEmpty()) {
+					context.getListener().getLogger().println(Messages.SonarPublisher_NoChangedSources(preview.getBranch()));
+					return true;
+				}
+			}
+			String properties = getRunnerProperties(context, lightProjectConfig, sourceDirs);
+			if (preview != null) {
+				properties += toProperties(preview.getProperties(sourceDirs, context.getInstallation().isFourOrHigher()));
+			}
+			pipeline.get(runnerJars);
+			return sonarRunner.run(context.getListener(), context.getInstallation(), lightProjectConfig.getBuildWay().getJavaOpts(),
+					properties, pipeline.get(javaExecutable)) == 0;
+		} catch (InterruptedException e) {
+			pipeline.cancel();
+			throw e;
+		} finally {
+			pipeline.join();
+			sonarRunner.cleanup();
+		}
+	}
+
+	/**
+	 * @return content of the sonar-runner properties file, with the Jenkins variables expanded
+	 */
+	private String getRunnerProperties(AnalysisContext context, LightProjectConfig lightProjectConfig, List<String> filePaths) {
+		return lightProjectConfig.getRunnerProperties().render(context.getEnv(), filePaths, context.getInstallation().isFourOrHigher());
+	}
+
+	/**
+	 * @return checks of what sonar-runner needs, the missing reports are only warned about since sonar-runner silently
+	 *         ignores them
+	 */
+	private Preflight newPreflight(AnalysisContext context, LightProjectConfig lightProjectConfig, List<String> sourceDirs,
+			String javaExecutable) {
+		Preflight preflight = new Preflight()
+				.requireSources(lightProjectConfig.getProjectSrcDir(), sourceDirs)
+				.requireJava(javaExecutable, context.getEnv().get("PATH"));
+		for (String binDir : StringUtils.split(StringUtils.defaultString(lightProjectConfig.getProjectBinDir()), ',')) {
+			if (StringUtils.isNotBlank(binDir)) {
+				preflight.requirePath("Binaries directory", context.expand(binDir.trim()));
+			}
+		}
+		ReportsConfig reports = lightProjectConfig.getReports();
+		if (lightProjectConfig.isReuseReports() && reports != null && !reports.isUseTusarReports()) {
+			checkReportPath(preflight, context, "Clover report", reports.getCloverReportPath());
+			checkReportPath(preflight, context, "Cobertura report", reports.getCoberturaReportPath());
+			checkReportPath(preflight, context, "Surefire reports", reports.getSurefireReportsPath());
+		}
+		return preflight;
+	}
+
+	/**
+	 * @return the properties in the format of a properties file
+	 */
+	private static String toProperties(Map<String, String> properties) {
+		StringBuilder content = new StringBuilder("\n");
+		for (Map.Entry<String, String> property : properties.entrySet()) {
+			content.append(property.getKey()).append('=').append(property.getValue()).append('\n');
+		}
+		return content.toString();
+	}
+
+	private static void checkReportPath(Preflight preflight, AnalysisContext context, String description, String reportPath) {
+		if (StringUtils.isNotBlank(reportPath)) {
+			preflight.checkPath(description, context.expand(reportPath.trim()));
+		}
 	}
 
 	public MavenModuleSet getMavenProject(AbstractBuild build) {
@@ -496,24 +1230,21 @@ public class SonarPublisher extends Notifier {
 		return pomName;
 	}
 
-	private String getPomName(AbstractBuild<?, ?> build, BuildListener listener) throws IOException, InterruptedException {
-		String pomName = getPomName(build);
+	private String getPomName(AnalysisContext context) {
 		// TODO Godin: why we should expand it?
 		// Expand, because pomName can be "${VAR}/pom.xml"
-		EnvVars env = build.getEnvironment(listener);
-		pomName = env.expand(pomName);
-		return pomName;
+		return context.expand(getPomName(context.getBuild()));
 	}
 
-	private boolean executeSonarMaven(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, SonarInstallation sonarInstallation) {
+	private boolean executeSonarMaven(AnalysisContext context) {
+		AbstractBuild<?, ?> build = context.getBuild();
+		BuildListener listener = context.getListener();
 		try {
-			String pomName = getPomName(build, listener);
-			EnvVars env = build.getEnvironment(listener);
-			FilePath root = build.getWorkspace();
+			String pomName = getPomName(context);
 			if (isUseSonarLight()) {
 				LOG.info("Generating " + pomName);
 				listener.getLogger().println("[SonarPlugin] [INFO] Generating POM...");
-				SonarPomGenerator.generatePomForNonMavenProject(getLightProject(), root, pomName, env, sonarInstallation.isFourOrHigher());
+				SonarPomGenerator.generatePomForNonMavenProject(getLightProject(), context, pomName);
 			}
 			String mavenInstallationName = getMavenInstallationName();
 			if (isMavenBuilder(build.getProject())) {
@@ -524,7 +1255,7 @@ public class SonarPublisher extends Notifier {
 			}
 
 			// Execute maven
-			return SonarMaven.executeMaven(build, launcher, listener, mavenInstallationName, pomName, sonarInstallation, this);
+			return SonarMaven.executeMaven(context, mavenInstallationName, pomName, this);
 		} catch (IOException e) {
 			Util.displayIOException(e, listener);
 			e.printStackTrace(listener.fatalError("command execution failed"));
@@ -537,13 +1268,68 @@ public class SonarPublisher extends Notifier {
 		}
 	}
 
+	/**
+	 * Resolves the URL of the Sonar dashboard of the analyzed project. Called once per analysis, so that
+	 * pages showing the project don't have to read anything from the workspace.
+	 * 
+	 * @return URL of the dashboard, the server URL if the project key can't be resolved
+	 * @since 1.6.1.thales.16
+	 */
+	protected String resolveSonarUrl(AnalysisContext context) {
+		SonarInstallation sonarInstallation = context.getInstallation();
+		String url = sonarInstallation.getServerLink();
+		try {
+			MavenModuleSet mavenModuleSet = getMavenProject(context.getBuild());
+			if (this.getLightProject() != null) {
+				/**
+				 * Modified JMD:
+				 * Cause fields like GroupId, ArtifactId can containing Jenkins variable in the form of ${VAR_NAME}
+				 * We invoke the local expand method on those to ensure that Jenkins variables will be corrrectly expanded
+				 */
+				url = SonarPublisher.expandJenkinsVars(context.getEnv(), sonarInstallation.getProjectLink(this.lightProject.getGroupId(), this.lightProject.getArtifactId(), this.branch));
+			} else if (mavenModuleSet != null) {
+				MavenModule rootModule = mavenModuleSet.getRootModule();
+				if (rootModule != null) {
+					ModuleName moduleName = rootModule.getModuleName();
+					url = sonarInstallation.getProjectLink(moduleName.groupId, moduleName.artifactId, getBranch());
+				}
+			} else {
+				// Free-style job built by maven: pom.xml already exists
+				MavenXpp3Reader reader = new MavenXpp3Reader();
+				InputStreamReader pomReader = new InputStreamReader(context.getWorkspace().child(getPomName(context)).read());
+				try {
+					Model model = reader.read(pomReader);
+					url = sonarInstallation.getProjectLink(model.getGroupId(), model.getArtifactId(), getBranch());
+				} finally {
+					pomReader.close();
+				}
+			}
+		} catch (IOException e) {
+			// ignore
+		} catch (XmlPullParserException e) {
+			// ignore
+		} catch (NullPointerException e) {
+			// ignore something in the line can be null for maven project
+		}
+		return url;
+	}
+
+	/**
+	 * Returns the dashboard URL recorded by the last analysis, without any remote call.
+	 * Before the first analysis, falls back to what can be known from the configuration.
+	 */
 	protected String getSonarUrl(AbstractProject<?, ?> project) {
 		SonarInstallation sonarInstallation = getInstallation();
 		if (sonarInstallation == null) {
 			return null;
 		}
 
-		String url = sonarInstallation.getServerLink();
+		String url = AnalysisTimestamps.get().getDashboardUrl(project.getFullName());
+		if (url != null) {
+			return url;
+		}
+
+		url = sonarInstallation.getServerLink();
 		if (project instanceof AbstractMavenProject) {
 			// Maven Project
 			AbstractMavenProject mavenProject = (AbstractMavenProject) project;
@@ -555,55 +1341,26 @@ public class SonarPublisher extends Notifier {
 					url = sonarInstallation.getProjectLink(moduleName.groupId, moduleName.artifactId, getBranch());
 				}
 			}
+		} else if (this.getLightProject() != null && !containsVariable(this.lightProject.getGroupId())
+				&& !containsVariable(this.lightProject.getArtifactId()) && !containsVariable(this.branch)) {
+			url = sonarInstallation.getProjectLink(this.lightProject.getGroupId(), this.lightProject.getArtifactId(), this.branch);
 		}
-		/**
-		 * Free-style job:
-		 * If project was built by maven, then pom.xml already exists
-		 * If project wasn't built by maven, then there is should be generated pom.xml
-		 */
-		try {
-			AbstractBuild<?, ?> lastBuild = project.getLastBuild();
-			if (this.getLightProject() != null){
-				/**
-				 * Modified JMD:
-				 * Cause fields like GroupId, ArtifactId can containing Jenkins variable in the form of ${VAR_NAME}
-				 * We invoke the local expand method on those to ensure that Jenkins variables will be corrrectly expanded
-				 */
-				//url = sonarInstallation.getProjectLink(this.lightProject.getGroupId(), 
-				//				                       this.lightProject.getArtifactId(), 
-				//				                       this.branch);
-
-				//AM : adding the real treatment to ensure that the variable are expanded (need at least one build)
-				if (lastBuild==null){
-					EnvVars env = project.getEnvironment(null, new LogTaskListener(Logger.getLogger(this.getClass().getName()), Level.INFO));
-					url = SonarPublisher.expandJenkinsVars(env,sonarInstallation.getProjectLink(this.lightProject.getGroupId(), this.lightProject.getArtifactId(), this.branch));
-				}
-				else {
-					EnvVars env = lastBuild.getEnvironment(new LogTaskListener(Logger.getLogger(this.getClass().getName()), Level.INFO));
-					url = SonarPublisher.expandJenkinsVars(env,sonarInstallation.getProjectLink(this.lightProject.getGroupId(), this.lightProject.getArtifactId(), this.branch));
-				}
+		return url;
+	}
 
-			}else{
-				if (lastBuild != null) {
-					MavenXpp3Reader reader = new MavenXpp3Reader();
-					Model model = reader.read(new InputStreamReader(lastBuild.getWorkspace().child(getPomName(lastBuild)).read()));
-					String groupId = model.getGroupId();
-					String artifactId = model.getArtifactId();
-					url = sonarInstallation.getProjectLink(groupId, artifactId, getBranch());
-				}
-			}
-		} catch (IOException e) {
-			// ignore
-		} catch (XmlPullParserException e) {
-			// ignore
-		} catch (NullPointerException e) {
-			// ignore something in the line can be null for maven project
-			// Model model = reader.read(new InputStreamReader(lastBuild.getWorkspace().child(getPomName(lastBuild)).read()));
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+	/**
+	 * Links the build to the dashboard of its analysis, and records the dashboard of the job: builds whose analysis
+	 * was skipped or failed carry no {@link BuildSonarAction}, the job page reads the last recorded one.
+	 */
+	private static void addSonarAction(AbstractBuild<?, ?> build, String url) {
+		build.getActions().add(new BuildSonarAction(url));
+		if (url != null) {
+			AnalysisTimestamps.get().recordDashboardUrl(build.getProject().getFullName(), url);
 		}
-		return url;
+	}
+
+	private static boolean containsVariable(String value) {
+		return value != null && value.contains("$");
 	}
 
 	@Override
@@ -644,9 +1401,38 @@ public class SonarPublisher extends Notifier {
 		@CopyOnWrite
 		private volatile SonarInstallation[] installations = new SonarInstallation[0]; // NOSONAR
 
+		/**
+		 * Global configuration is read on first use rather than while Jenkins starts.
+		 */
+		private transient volatile boolean loaded;
+
+		/**
+		 * Maximum number of deferred analyses running at the same time, over all the jobs.
+		 * 
+		 * @since 1.6.1.thales.16
+		 */
+		private volatile int windowParallelism = 1;
+
+		/**
+		 * Maximum number of analyses running at the same time, over all the jobs, unlimited if 0.
+		 * 
+		 * @since 1.6.1.thales.16
+		 */
+		private volatile int analysisSlots;
+
 		public DescriptorImpl() {
 			super();
-			load();
+		}
+
+		private void ensureLoaded() {
+			if (!loaded) {
+				synchronized (this) {
+					if (!loaded) {
+						load();
+						loaded = true;
+					}
+				}
+			}
 		}
 
 
@@ -665,14 +1451,46 @@ public class SonarPublisher extends Notifier {
 		 * @return all configured {@link hudson.plugins.sonar.SonarInstallation}
 		 */
 		public SonarInstallation[] getInstallations() {
+			ensureLoaded();
 			return installations;
 		}
 
 		public void setInstallations(SonarInstallation... installations) {
 			this.installations = installations;
+			this.loaded = true;
+			save();
+		}
+
+		/**
+		 * @since 1.6.1.thales.16
+		 */
+		public int getWindowParallelism() {
+			ensureLoaded();
+			return Math.max(1, windowParallelism);
+		}
+
+		public void setWindowParallelism(int windowParallelism) {
+			ensureLoaded();
+			this.windowParallelism = windowParallelism;
 			save();
 		}
 
+		/**
+		 * @return maximum number of analyses running at the same time, 0 if unlimited
+		 * @since 1.6.1.thales.16
+		 */
+		public int getAnalysisSlots() {
+			ensureLoaded();
+			return Math.max(0, analysisSlots);
+		}
+
+		public void setAnalysisSlots(int analysisSlots) {
+			ensureLoaded();
+			this.analysisSlots = analysisSlots;
+			save();
+			AnalysisAdmission.get().setSlots(analysisSlots);
+		}
+
 		/**
 		 * This method is used in UI, so signature and location of this method is important (see SONARPLUGINS-1337).
 		 * 
@@ -687,7 +1505,10 @@ public class SonarPublisher extends Notifier {
 		@Override
 		public boolean configure(StaplerRequest req, JSONObject json) {
 			List<SonarInstallation> list = req.bindJSONToList(SonarInstallation.class, json.get("inst"));
+			windowParallelism = json.optInt("windowParallelism", 1);
+			analysisSlots = json.optInt("analysisSlots", 0);
 			setInstallations(list.toArray(new SonarInstallation[list.size()]));
+			AnalysisAdmission.get().setSlots(analysisSlots);
 			return true;
 		}
 
@@ -721,6 +1542,19 @@ public class SonarPublisher extends Notifier {
 					FormValidation.warning(Messages.SonarPublisher_JavaVersionWarn()) : FormValidation.ok();
 		}
 
+		@SuppressWarnings({ "UnusedDeclaration", "ThrowableResultOfMethodCallIgnored" })
+		public FormValidation doCheckAnalysisWindow(@QueryParameter String value) {
+			if (StringUtils.isBlank(value)) {
+				return FormValidation.ok();
+			}
+			try {
+				CronTabList.create(value);
+				return FormValidation.ok();
+			} catch (ANTLRException e) {
+				return FormValidation.error(e.getMessage());
+			}
+		}
+
 		@Override
 		public boolean isApplicable(Class<? extends AbstractProject> jobType) {
 			// eventually check if job type of FreeStyleProject.class || MavenModuleSet.class
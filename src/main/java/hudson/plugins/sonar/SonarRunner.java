@@ -53,10 +53,35 @@ public class SonarRunner {
 	private final FilePath workDir;
 	private FilePath runnerJar;
 	private FilePath bootstrapperJar;
+	private FilePath stubDir;
 	public final static String propertiesFileName = "sonar-runner-jenkins.properties";
 
+	private static final String MAIN_CLASS = "org.sonar.runner.Main";
+
+	/**
+	 * Diagnostic mode, enabled with the <tt>hudson.plugins.sonar.SonarRunner.stub</tt> system property: launch
+	 * {@link SonarRunnerStub} instead of sonar-runner, to measure the overhead of the plugin alone.
+	 * 
+	 * @since 1.6.1.thales.16
+	 */
+	private static boolean stub = Boolean.getBoolean(SonarRunner.class.getName() + ".stub");
+
 	//1.6.1.thales.11 : Storing the abstract build to do operations on masked arguments received from DTKIT plugin (storing them in sonar-runner-jenkins.properties)
 	private final AbstractBuild<?, ?> build;
+
+	private final Node node;
+
+	/**
+	 * @since 1.6.1.thales.16
+	 */
+	public SonarRunner(AnalysisContext context) {
+		this.build = context.getBuild();
+		this.project = build.getProject();
+		this.launcher = context.getLauncher();
+		this.envVars = context.getEnv();
+		this.workDir = context.getWorkspace();
+		this.node = context.getNode();
+	}
 	
 	public SonarRunner(AbstractBuild<?, ?> build, Launcher launcher, EnvVars envVars) throws IOException, InterruptedException {
 		this.build = build;
@@ -64,6 +89,7 @@ public class SonarRunner {
 		this.launcher = launcher;
 		this.envVars = envVars;
 		this.workDir = build.getWorkspace();
+		this.node = null;
 	}
 	
 	/**
@@ -76,6 +102,7 @@ public class SonarRunner {
 		this.envVars = envVars;
 		this.workDir = workDir;
 		this.build = null;
+		this.node = null;
 	}
 
 	/*public int launch(BuildListener listener, SonarInstallation sonarInstallation, String javaOpts, String properties) throws IOException, InterruptedException {
@@ -91,13 +118,23 @@ public class SonarRunner {
 	public int launch(BuildListener listener, SonarInstallation sonarInstallation, String javaOpts, String fileProperties) throws IOException, InterruptedException {
 		try {
 			extract();
-			ArgumentListBuilder args = prepareCommandLine(listener, sonarInstallation, javaOpts, fileProperties);
-			return launcher.launch().cmds(args).envs(envVars).stdout(listener).pwd(workDir).join();
+			return run(listener, sonarInstallation, javaOpts, fileProperties, getJavaExecutable(listener));
 		} finally {
 			cleanup();
 		}
 	}
 
+	/**
+	 * Launches sonar-runner once {@link #extract()} is done and the Java executable is known, so that both can be
+	 * prepared concurrently. The caller is responsible for {@link #cleanup()}.
+	 * 
+	 * @since 1.6.1.thales.16
+	 */
+	int run(BuildListener listener, SonarInstallation sonarInstallation, String javaOpts, String fileProperties, String javaExecutable) throws IOException, InterruptedException {
+		ArgumentListBuilder args = prepareCommandLine(listener, sonarInstallation, javaOpts, fileProperties, javaExecutable);
+		return launcher.launch().cmds(args).envs(envVars).stdout(listener).pwd(workDir).join();
+	}
+
 	/**
 	 * Visibility of a method has been relaxed for tests.
 	 * @Deprecated since 1.6.1.thales.10, use prepareCommandLine instead
@@ -136,16 +173,24 @@ public class SonarRunner {
 	}
 	
 	ArgumentListBuilder prepareCommandLine(BuildListener listener, SonarInstallation sonarInstallation, String javaOpts, String fileProperties) throws IOException, InterruptedException {
+		return prepareCommandLine(listener, sonarInstallation, javaOpts, fileProperties, getJavaExecutable(listener));
+	}
+
+	private ArgumentListBuilder prepareCommandLine(BuildListener listener, SonarInstallation sonarInstallation, String javaOpts, String fileProperties, String javaExecutable) throws IOException, InterruptedException {
 		ArgumentListBuilder args = new ArgumentListBuilder();
 		// Java
-		args.add(getJavaExecutable(listener));
+		args.add(javaExecutable);
 		// Java options
 		args.addTokenized(envVars.expand(javaOpts));
-		// Classpath
+		// Classpath and main class
 		args.add("-cp");
-		args.add(runnerJar.getRemote() + getClasspathDelimiter() + bootstrapperJar.getRemote());
-		// Main class
-		args.add("org.sonar.runner.Main");
+		if (stubDir != null) {
+			args.add(stubDir.getRemote());
+			args.add(SonarRunnerStub.class.getName());
+		} else {
+			args.add(runnerJar.getRemote() + getClasspathDelimiter() + bootstrapperJar.getRemote());
+			args.add(MAIN_CLASS);
+		}
 		// Debug trace
 		args.add("-e");
 		// Server properties
@@ -207,6 +252,12 @@ public class SonarRunner {
 	 * Visibility of a method has been relaxed for tests.
 	 */
 	void extract() throws IOException, InterruptedException {
+		if (stub) {
+			String stubClass = SonarRunnerStub.class.getName().replace('.', '/') + ".class";
+			stubDir = workDir.createTempDir("sonar-runner-stub", null);
+			stubDir.child(stubClass).copyFrom(this.getClass().getClassLoader().getResource(stubClass));
+			return;
+		}
 		runnerJar = workDir.createTempFile("sonar-runner", ".jar");
 		runnerJar.copyFrom(this.getClass().getClassLoader().getResource("sonar-runner.jar"));
 
@@ -214,6 +265,13 @@ public class SonarRunner {
 		bootstrapperJar.copyFrom(this.getClass().getClassLoader().getResource("sonar-batch-bootstrapper.jar"));
 	}
 
+	/**
+	 * Visibility of a method has been relaxed for tests.
+	 */
+	static void setStub(boolean stub) {
+		SonarRunner.stub = stub;
+	}
+
 	/**
 	 * Visibility of a method has been relaxed for tests.
 	 */
@@ -224,6 +282,9 @@ public class SonarRunner {
 		if (bootstrapperJar != null) {
 			bootstrapperJar.delete();
 		}
+		if (stubDir != null) {
+			stubDir.deleteRecursive();
+		}
 	}
 
 	/**
@@ -234,9 +295,11 @@ public class SonarRunner {
 	}
 
 	/**
+	 * Visibility of a method has been relaxed for the analysis pipeline.
+	 * 
 	 * @return path to Java executable to be used with this project, never <tt>null</tt>
 	 */
-	private String getJavaExecutable(BuildListener listener) throws IOException, InterruptedException {
+	String getJavaExecutable(BuildListener listener) throws IOException, InterruptedException {
 		JDK jdk = project.getJDK();
 		if (jdk != null) {
 			jdk = jdk.forNode(getCurrentNode(), listener).forEnvironment(envVars);
@@ -259,6 +322,9 @@ public class SonarRunner {
 	 * @return the current {@link Node} on which we are building
 	 */
 	private Node getCurrentNode() {
+		if (node != null) {
+			return node;
+		}
 		return Executor.currentExecutor().getOwner().getNode();
 	}
 
@@ -0,0 +1,143 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Stand-in for <tt>org.sonar.runner.Main</tt>, launched by {@link SonarRunner} in stub mode.
+ * It validates and echoes the properties it receives and exits immediately, which gives the cost of the
+ * plugin itself without the cost of the analysis.
+ * <p>
+ * When a server URL is given, it first sends the bootstrap requests of sonar-runner to the server, and fails like
+ * sonar-runner if the server doesn't answer them.
+ * </p>
+ * <p>
+ * This class is copied alone to the workspace and started in a fresh JVM: it must only depend on the JDK
+ * and must not declare inner or anonymous classes.
+ * </p>
+ *
+ * @since 1.6.1.thales.16
+ */
+public final class SonarRunnerStub {
+
+	/**
+	 * Requests sent by sonar-runner before the analysis starts
+	 */
+	private static final String[] BOOTSTRAP_PATHS = {"/api/server/version", "/batch_bootstrap/index", "/batch_bootstrap/properties"};
+
+	private SonarRunnerStub() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		Properties properties = new Properties();
+		for (String arg : args) {
+			if (arg.startsWith("-D") && arg.indexOf('=') > 2) {
+				properties.setProperty(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+			}
+		}
+
+		// Same precedence as sonar-runner: command line properties override the project settings file
+		String settings = properties.getProperty("project.settings");
+		if (settings != null) {
+			File settingsFile = new File(settings);
+			if (!settingsFile.isAbsolute()) {
+				settingsFile = new File(properties.getProperty("project.home", "."), settings);
+			}
+			if (!settingsFile.isFile()) {
+				System.out.println("[SonarRunnerStub] ERROR: project settings not found: " + settingsFile);
+				System.exit(1);
+			}
+			Properties fileProperties = new Properties();
+			InputStream input = new FileInputStream(settingsFile);
+			try {
+				fileProperties.load(input);
+			} finally {
+				input.close();
+			}
+			fileProperties.putAll(properties);
+			properties = fileProperties;
+		}
+
+		Map<Object, Object> sorted = new TreeMap<Object, Object>(properties);
+		for (Map.Entry<Object, Object> entry : sorted.entrySet()) {
+			String key = entry.getKey().toString();
+			String value = key.contains("password") || key.contains("login") || key.contains("username") ? "******" : entry.getValue().toString();
+			System.out.println("[SonarRunnerStub] " + key + "=" + value);
+		}
+
+		String serverUrl = properties.getProperty("sonar.host.url");
+		if (!isBlank(serverUrl)) {
+			for (String path : BOOTSTRAP_PATHS) {
+				if (!get(serverUrl.replaceAll("/+$", "") + path)) {
+					System.out.println("[SonarRunnerStub] EXECUTION FAILURE");
+					System.exit(1);
+				}
+			}
+		}
+
+		int errors = 0;
+		if (isBlank(properties.getProperty("sonar.projectKey"))) {
+			System.out.println("[SonarRunnerStub] ERROR: sonar.projectKey is missing");
+			errors++;
+		}
+		if (isBlank(properties.getProperty("sonar.sources")) && isBlank(properties.getProperty("sonar.modules"))) {
+			System.out.println("[SonarRunnerStub] ERROR: sonar.sources is missing");
+			errors++;
+		}
+		System.out.println("[SonarRunnerStub] " + (errors == 0 ? "EXECUTION SUCCESS" : "EXECUTION FAILURE"));
+		System.exit(errors == 0 ? 0 : 1);
+	}
+
+	/**
+	 * @return true if the server answered the request, which is read to its end
+	 */
+	private static boolean get(String url) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+			int status = connection.getResponseCode();
+			if (status != HttpURLConnection.HTTP_OK) {
+				System.out.println("[SonarRunnerStub] ERROR: " + url + " answered " + status);
+				return false;
+			}
+			InputStream input = connection.getInputStream();
+			try {
+				byte[] buffer = new byte[4096];
+				while (input.read(buffer) >= 0) {
+					// Only the transfer matters
+				}
+			} finally {
+				input.close();
+			}
+			return true;
+		} catch (IOException e) {
+			System.out.println("[SonarRunnerStub] ERROR: Sonar server can not be reached at " + url + ": " + e);
+			return false;
+		}
+	}
+
+	private static boolean isBlank(String value) {
+		return value == null || value.trim().length() == 0;
+	}
+}
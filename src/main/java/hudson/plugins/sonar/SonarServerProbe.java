@@ -0,0 +1,159 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Hudson;
+import hudson.model.TaskListener;
+import hudson.plugins.sonar.utils.SonarServerClient;
+import hudson.plugins.sonar.utils.SonarServerClient.ServerStatus;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Polls in the background the servers of the installations that ask for it, so that a down server is known before
+ * an analysis spends minutes starting against it.
+ * 
+ * @since 1.6.1.thales.16
+ */
+@Extension
+public class SonarServerProbe extends AsyncPeriodicWork {
+	private static final String PREFIX = SonarServerProbe.class.getName();
+
+	/**
+	 * Time between two probes, in milliseconds.
+	 */
+	public static long PERIOD = Long.getLong(PREFIX + ".period", 60000);
+
+	/**
+	 * Time a probe result is trusted, in milliseconds.
+	 */
+	public static long TTL = Long.getLong(PREFIX + ".ttl", 180000);
+
+	private static final ConcurrentMap<String, Result> RESULTS = new ConcurrentHashMap<String, Result>();
+
+	public SonarServerProbe() {
+		super("Sonar server probe");
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return PERIOD;
+	}
+
+	@Override
+	protected void execute(TaskListener listener) {
+		for (SonarInstallation installation : Hudson.getInstance().getDescriptorByType(SonarPublisher.DescriptorImpl.class).getInstallations()) {
+			if (!installation.isDisabled() && installation.isProbeServer()) {
+				Result result = probe(installation);
+				listener.getLogger().println(installation.getName() + ": " + result);
+			}
+		}
+	}
+
+	/**
+	 * Outcome of a probe.
+	 */
+	public static final class Result {
+		private final ServerStatus status;
+
+		private final String error;
+
+		private final long time;
+
+		Result(ServerStatus status, String error, long time) {
+			this.status = status;
+			this.error = error;
+			this.time = time;
+		}
+
+		public boolean isUp() {
+			return status != null && status.isUp();
+		}
+
+		/**
+		 * @return version of the server, or null if unknown
+		 */
+		public String getVersion() {
+			return status == null ? null : StringUtils.trimToNull(status.getVersion());
+		}
+
+		public long getTime() {
+			return time;
+		}
+
+		@Override
+		public String toString() {
+			return status == null ? error : status.toString();
+		}
+	}
+
+	/**
+	 * Probes the server of the installation now, on <tt>/api/server/index</tt> only: the other web services may
+	 * require authentication.
+	 */
+	public static Result probe(SonarInstallation installation) {
+		SonarServerClient client = new SonarServerClient(installation);
+		Result result;
+		try {
+			result = new Result(client.getStatus(false), null, System.currentTimeMillis());
+		} catch (IOException e) {
+			result = new Result(null, e.toString(), System.currentTimeMillis());
+		}
+		RESULTS.put(client.getUrl(), result);
+		return result;
+	}
+
+	/**
+	 * @return last result of the probe of the server, probing it now if the result expired
+	 */
+	public static Result getResult(SonarInstallation installation) {
+		Result result = getCachedResult(installation);
+		return result == null ? probe(installation) : result;
+	}
+
+	/**
+	 * @return last result of the probe of the server, or null if the server wasn't probed or the result expired
+	 */
+	public static Result getCachedResult(SonarInstallation installation) {
+		Result result = RESULTS.get(new SonarServerClient(installation).getUrl());
+		if (result == null || System.currentTimeMillis() - result.getTime() > TTL) {
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * @return true if the server is known to be 4.0 or higher, false if it is known to be older, null if unknown
+	 */
+	static Boolean isFourOrHigher(SonarInstallation installation) {
+		Result result = getCachedResult(installation);
+		String version = result == null ? null : result.getVersion();
+		if (version == null) {
+			return null;
+		}
+		try {
+			return Integer.parseInt(StringUtils.substringBefore(version, ".")) >= 4;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
@@ -20,6 +20,13 @@ import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 public class BuildWay {
+	/**
+	 * Shared instance used when no build way is configured, BuildWay being immutable.
+	 * 
+	 * @since 1.6.1.thales.16
+	 */
+	public static final BuildWay DEFAULT = new BuildWay(LightProjectConfig.DEFAULT_BUILD_WAY, "");
+
 	/**
 	 * since 1.6.1.thales.3
 	 */
@@ -47,4 +54,17 @@ public class BuildWay {
 		return StringUtils.trimToEmpty(javaOpts);
 	}
 
+	/**
+	 * Jobs using the default build way share {@link #DEFAULT} once loaded.
+	 * 
+	 * @return this or {@link #DEFAULT}
+	 */
+	@SuppressWarnings({ "UnusedDeclaration" })
+	public Object readResolve() {
+		if (getValue().equals(DEFAULT.getValue()) && getJavaOpts().isEmpty()) {
+			return DEFAULT;
+		}
+		return this;
+	}
+
 }
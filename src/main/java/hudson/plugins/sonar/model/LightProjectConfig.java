@@ -97,6 +97,11 @@ public class LightProjectConfig {
 	 */
 	private final String sonarRunnerAdditionalProperties;
 
+	/**
+	 * @since 1.6.1.thales.16
+	 */
+	private transient volatile RunnerProperties runnerProperties;
+
 	public LightProjectConfig(String groupId, String artifactId, String projectName, String compilerVersion) {
 		this(groupId, artifactId, projectName, compilerVersion, null, null, null, null, null, null, null, null, null);
 	}
@@ -130,12 +135,9 @@ public class LightProjectConfig {
 		this.projectBinDir = projectBinDir;
 		this.reports = reports;
 		this.buildWay = buildWay;
-		if (this.buildWay==null){
-			buildWay=new BuildWay(LightProjectConfig.DEFAULT_BUILD_WAY, "");
-		}
 		this.sonarRunnerAdditionalProperties = sonarRunnerAdditionalProperties;
 	}
-	
+
 	public LightProjectConfig(
 			String groupId,
 			String artifactId,
@@ -206,6 +208,9 @@ public class LightProjectConfig {
 		return reports != null;
 	}
 	
+	/**
+	 * @return configured build way, null for configurations older than 1.6.1.thales.3, which are analyzed with Maven
+	 */
 	public BuildWay getBuildWay() {
 		return buildWay;
 	}
@@ -213,4 +218,15 @@ public class LightProjectConfig {
 	public String getSonarRunnerAdditionalProperties() {
 		return sonarRunnerAdditionalProperties;
 	}
+
+	/**
+	 * @return sonar-runner properties compiled from this configuration, on first use
+	 * @since 1.6.1.thales.16
+	 */
+	public RunnerProperties getRunnerProperties() {
+		if (runnerProperties == null) {
+			runnerProperties = RunnerProperties.compile(this);
+		}
+		return runnerProperties;
+	}
 }
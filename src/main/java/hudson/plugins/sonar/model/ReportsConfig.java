@@ -42,6 +42,13 @@ public class ReportsConfig {
    * When checked, this option insert TUSAR parameters String into Maven Options
    */
   private final Boolean useTusarReports;
+
+  /**
+   * Shared instance without any report, ReportsConfig being immutable.
+   *
+   * @since 1.6.1.thales.16
+   */
+  public static final ReportsConfig EMPTY = new ReportsConfig();
     
   public ReportsConfig() {
     this(null, null, null, false);
@@ -73,4 +80,18 @@ public class ReportsConfig {
   public boolean isUseTusarReports() {
     return useTusarReports!=null?useTusarReports:false;
   }
+
+  /**
+   * Jobs reusing reports without any path share {@link #EMPTY} once loaded.
+   *
+   * @return this or {@link #EMPTY}
+   */
+  @SuppressWarnings({ "UnusedDeclaration" })
+  public Object readResolve() {
+    if (surefireReportsPath == null && coberturaReportPath == null && cloverReportPath == null
+        && !isUseTusarReports()) {
+      return EMPTY;
+    }
+    return this;
+  }
 }
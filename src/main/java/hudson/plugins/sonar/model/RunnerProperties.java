@@ -0,0 +1,153 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.model;
+
+import hudson.EnvVars;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * sonar-runner properties of a {@link LightProjectConfig}, compiled once when the configuration is saved or loaded.
+ * Values are checked and ordered at that time and only the values referencing variables are expanded for a build.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public final class RunnerProperties {
+	/**
+	 * A value of the properties file, or a raw block of properties when key is null.
+	 */
+	private static final class Slot {
+		private final String key;
+		private final String value;
+		private final boolean expandable;
+
+		private Slot(String key, String value) {
+			this.key = key;
+			this.value = value;
+			this.expandable = value.indexOf('$') != -1;
+		}
+
+		private void render(StringBuilder out, EnvVars env) {
+			if (key != null) {
+				out.append(key).append('=');
+			}
+			out.append(expandable ? env.expand(value) : value).append('\n');
+		}
+	}
+
+	/**
+	 * Properties written before the source directories.
+	 */
+	private final List<Slot> header;
+
+	/**
+	 * Properties written after the source directories and before the reports.
+	 */
+	private final List<Slot> project;
+
+	private final boolean reuseReports;
+
+	private final List<Slot> reports;
+
+	private final Slot additionalProperties;
+
+	private RunnerProperties(List<Slot> header, List<Slot> project, boolean reuseReports, List<Slot> reports, Slot additionalProperties) {
+		this.header = Collections.unmodifiableList(header);
+		this.project = Collections.unmodifiableList(project);
+		this.reuseReports = reuseReports;
+		this.reports = Collections.unmodifiableList(reports);
+		this.additionalProperties = additionalProperties;
+	}
+
+	public static RunnerProperties compile(LightProjectConfig config) {
+		List<Slot> header = new ArrayList<Slot>();
+		//Since 1.6.1.thales.10, if using the sonar runner, you can fill the new field where you can put the runner properties, thus the following are now optional
+		if (StringUtils.isNotBlank(config.getGroupId()) && StringUtils.isNotBlank(config.getArtifactId())) {
+			header.add(new Slot("sonar.projectKey", config.getGroupId() + ":" + config.getArtifactId()));
+		}
+		add(header, "sonar.projectName", config.getProjectName());
+		add(header, "sonar.projectVersion", config.getProjectVersion());
+		add(header, "sonar.java.source", config.getJavaVersion());
+		add(header, "sonar.java.target", config.getJavaVersion());
+
+		List<Slot> project = new ArrayList<Slot>();
+		add(project, "sonar.binaries", config.getProjectBinDir());
+		add(project, "sonar.description", config.getProjectDescription());
+		add(project, "sonar.sourceEncoding", config.getProjectSrcEncoding());
+
+		List<Slot> reports = new ArrayList<Slot>();
+		ReportsConfig reportsConfig = config.getReports();
+		if (config.isReuseReports() && !reportsConfig.isUseTusarReports()) {
+			addIfNotEmpty(reports, "sonar.clover.reportsPath", reportsConfig.getCloverReportPath());
+			addIfNotEmpty(reports, "sonar.cobertura.reportsPath", reportsConfig.getCoberturaReportPath());
+			addIfNotEmpty(reports, "sonar.surefire.reportsPath", reportsConfig.getSurefireReportsPath());
+		}
+
+		String additional = config.getSonarRunnerAdditionalProperties();
+		Slot additionalProperties = StringUtils.isNotBlank(additional) ? new Slot(null, additional) : null;
+
+		return new RunnerProperties(header, project, config.isReuseReports(), reports, additionalProperties);
+	}
+
+	private static void add(List<Slot> slots, String key, String value) {
+		if (StringUtils.isNotBlank(value)) {
+			slots.add(new Slot(key, value));
+		}
+	}
+
+	private static void addIfNotEmpty(List<Slot> slots, String key, String value) {
+		if (StringUtils.isNotEmpty(value)) {
+			slots.add(new Slot(key, value));
+		}
+	}
+
+	/**
+	 * @param env variables of the build
+	 * @param sourceDirs source directories resolved for the build
+	 * @return content of the properties file
+	 */
+	public String render(EnvVars env, List<String> sourceDirs, boolean sonarFourOrHigher) {
+		StringBuilder out = new StringBuilder(512);
+		for (Slot slot : header) {
+			slot.render(out, env);
+		}
+		if (!sourceDirs.isEmpty()) {
+			out.append("sonar.sources=");
+			for (String sourceDir : sourceDirs) {
+				out.append(sourceDir.replace('\\', '/')).append(',');
+			}
+			out.setLength(out.length() - 1);
+		}
+		out.append('\n');
+		for (Slot slot : project) {
+			slot.render(out, env);
+		}
+		if (reuseReports && !sonarFourOrHigher) {
+			out.append("sonar.dynamicAnalysis=reuseReports\n");
+		}
+		for (Slot slot : reports) {
+			slot.render(out, env);
+		}
+		if (additionalProperties != null) {
+			additionalProperties.render(out, env);
+		}
+		return out.toString();
+	}
+}
@@ -15,17 +15,33 @@
  */
 package hudson.plugins.sonar.model;
 
+import hudson.Util;
+import hudson.matrix.MatrixRun;
 import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
 import hudson.model.Cause;
 import hudson.model.CauseAction;
+import hudson.model.Hudson;
+import hudson.model.Queue;
 import hudson.model.Result;
+import hudson.plugins.sonar.AnalysisTimestamps;
+import hudson.plugins.sonar.BuildSonarAction;
+import hudson.plugins.sonar.DeferredAnalyses;
+import hudson.plugins.sonar.DeferredAnalysisCause;
 import hudson.plugins.sonar.Messages;
+import hudson.scheduler.CronTabList;
 import hudson.triggers.SCMTrigger;
 import hudson.triggers.TimerTrigger;
+import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import java.io.Serializable;
+import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import antlr.ANTLRException;
 
 /**
  * @author Evgeny Mandrikov
@@ -45,16 +61,77 @@ public class TriggersConfig implements Serializable {
 
   private boolean skipIfBuildFails;
 
+  /**
+   * Skip the analysis when a newer build of the same job will be analyzed anyway. Builds are compared within the job,
+   * whose builds are numbered and queued, rather than by Sonar project key, which is only known once the build ran.
+   *
+   * @since 1.6.1.thales.16
+   */
+  private boolean coalesce;
+
+  /**
+   * Minimum time between two analyses of a job, in minutes. 0 to analyze every build.
+   *
+   * @since 1.6.1.thales.16
+   */
+  private int minAnalysisInterval;
+
+  /**
+   * Defer the analysis of the builds skipped by the interval when no other analysis is allowed in the day, so that the
+   * last build of the day is analyzed.
+   *
+   * @since 1.6.1.thales.16
+   */
+  private boolean analyzeLastBuildOfDay;
+
+  /**
+   * Cron specification of the minutes during which analyses can run, empty to analyze at any time.
+   *
+   * @since 1.6.1.thales.16
+   */
+  private String analysisWindow;
+
+  /**
+   * Skip the analysis when the analyzed inputs did not change since the last successful analysis.
+   *
+   * @since 1.6.1.thales.16
+   */
+  private boolean skipUnchangedInputs;
+
   public TriggersConfig() {
   }
 
-  @DataBoundConstructor
   public TriggersConfig(boolean scmBuilds, boolean timerBuilds, boolean userBuilds, boolean snapshotDependencyBuilds, boolean skipIfBuildFails) {
+    this(scmBuilds, timerBuilds, userBuilds, snapshotDependencyBuilds, skipIfBuildFails, false);
+  }
+
+  public TriggersConfig(boolean scmBuilds, boolean timerBuilds, boolean userBuilds, boolean snapshotDependencyBuilds, boolean skipIfBuildFails,
+      boolean coalesce) {
+    this(scmBuilds, timerBuilds, userBuilds, snapshotDependencyBuilds, skipIfBuildFails, coalesce, 0, false);
+  }
+
+  public TriggersConfig(boolean scmBuilds, boolean timerBuilds, boolean userBuilds, boolean snapshotDependencyBuilds, boolean skipIfBuildFails,
+      boolean coalesce, int minAnalysisInterval, boolean analyzeLastBuildOfDay) {
+    this(scmBuilds, timerBuilds, userBuilds, snapshotDependencyBuilds, skipIfBuildFails, coalesce, minAnalysisInterval, analyzeLastBuildOfDay,
+        null, false);
+  }
+
+  /**
+   * @since 1.6.1.thales.16
+   */
+  @DataBoundConstructor
+  public TriggersConfig(boolean scmBuilds, boolean timerBuilds, boolean userBuilds, boolean snapshotDependencyBuilds, boolean skipIfBuildFails,
+      boolean coalesce, int minAnalysisInterval, boolean analyzeLastBuildOfDay, String analysisWindow, boolean skipUnchangedInputs) {
     this.scmBuilds = scmBuilds;
     this.timerBuilds = timerBuilds;
     this.userBuilds = userBuilds;
     this.snapshotDependencyBuilds = snapshotDependencyBuilds;
     this.skipIfBuildFails = skipIfBuildFails;
+    this.coalesce = coalesce;
+    this.minAnalysisInterval = Math.max(0, minAnalysisInterval);
+    this.analyzeLastBuildOfDay = analyzeLastBuildOfDay;
+    this.analysisWindow = StringUtils.trimToNull(analysisWindow);
+    this.skipUnchangedInputs = skipUnchangedInputs;
   }
 
   public boolean isScmBuilds() {
@@ -97,23 +174,218 @@ public class TriggersConfig implements Serializable {
     this.skipIfBuildFails = skipIfBuildFails;
   }
 
+  /**
+   * @since 1.6.1.thales.16
+   */
+  public boolean isCoalesce() {
+    return coalesce;
+  }
+
+  public void setCoalesce(boolean coalesce) {
+    this.coalesce = coalesce;
+  }
+
+  /**
+   * @since 1.6.1.thales.16
+   */
+  public int getMinAnalysisInterval() {
+    return minAnalysisInterval;
+  }
+
+  public void setMinAnalysisInterval(int minAnalysisInterval) {
+    this.minAnalysisInterval = Math.max(0, minAnalysisInterval);
+  }
+
+  /**
+   * @since 1.6.1.thales.16
+   */
+  public boolean isAnalyzeLastBuildOfDay() {
+    return analyzeLastBuildOfDay;
+  }
+
+  public void setAnalyzeLastBuildOfDay(boolean analyzeLastBuildOfDay) {
+    this.analyzeLastBuildOfDay = analyzeLastBuildOfDay;
+  }
+
+  /**
+   * @since 1.6.1.thales.16
+   */
+  public String getAnalysisWindow() {
+    return analysisWindow;
+  }
+
+  public void setAnalysisWindow(String analysisWindow) {
+    this.analysisWindow = StringUtils.trimToNull(analysisWindow);
+  }
+
+  /**
+   * @since 1.6.1.thales.16
+   */
+  public boolean isSkipUnchangedInputs() {
+    return skipUnchangedInputs;
+  }
+
+  public void setSkipUnchangedInputs(boolean skipUnchangedInputs) {
+    this.skipUnchangedInputs = skipUnchangedInputs;
+  }
+
+  /**
+   * @param now current time
+   * @return true, if analyses can run at the specified time. An invalid window never defers analyses.
+   * @since 1.6.1.thales.16
+   */
+  public boolean isInAnalysisWindow(Calendar now) {
+    if (analysisWindow == null) {
+      return true;
+    }
+    try {
+      return CronTabList.create(analysisWindow).check(now);
+    } catch (ANTLRException e) {
+      return true;
+    }
+  }
+
+  /**
+   * @param build build to analyze
+   * @param now current time
+   * @return true, if the analysis of the build must wait for the analysis window
+   * @since 1.6.1.thales.16
+   */
+  public boolean isDeferred(AbstractBuild<?, ?> build, Calendar now) {
+    return !isInAnalysisWindow(now) && !isTrigger(build, DeferredAnalysisCause.class);
+  }
+
   public String isSkipSonar(AbstractBuild<?, ?> build) {
-    if (isSkipIfBuildFails() && build.getResult().isWorseThan(Result.UNSTABLE)) {
-      return Messages.SonarPublisher_BadBuildStatus(build.getResult().toString());
-    } else if (build.getResult().isWorseThan(Result.FAILURE)) {
-      return Messages.SonarPublisher_BadBuildStatus(build.getResult().toString());
-    } else if (!isScmBuilds() && isTrigger(build, SCMTrigger.SCMTriggerCause.class)) {
+    String skip = isSkipSonar(build.getResult(), getCauses(build));
+    if (skip != null) {
+      return skip;
+    } else if (isCoalesce()) {
+      AbstractBuild<?, ?> newer = getNewerAnalyzedBuild(build);
+      if (newer != null) {
+        return Messages.SonarPublisher_Coalesced(newer.getDisplayName());
+      }
+      Queue.Item queued = Hudson.getInstance().getQueue().getItem(build.getProject());
+      if (queued != null && isSkipSonar(null, getCauses(queued.getAction(CauseAction.class))) == null) {
+        return Messages.SonarPublisher_CoalescedQueued();
+      }
+    }
+    if (getMinAnalysisInterval() > 0 && !isTrigger(build, DeferredAnalysisCause.class)) {
+      Long lastAnalysis = AnalysisTimestamps.get().getLastAnalysis(build.getProject().getFullName());
+      long now = System.currentTimeMillis();
+      // Deferred to the end of the interval instead
+      if (getNextAnalysis(lastAnalysis, now) == null) {
+        return isTooSoon(lastAnalysis, now);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param build build to analyze
+   * @param now current time
+   * @return time the analysis of the build is deferred to, if it is skipped by the interval while the last build of
+   * the day is analyzed, or null
+   * @since 1.6.1.thales.16
+   */
+  public Calendar getDeferredAnalysis(AbstractBuild<?, ?> build, Calendar now) {
+    if (getMinAnalysisInterval() == 0 || isTrigger(build, DeferredAnalysisCause.class)) {
+      return null;
+    }
+    return getNextAnalysis(AnalysisTimestamps.get().getLastAnalysis(build.getProject().getFullName()), now.getTimeInMillis());
+  }
+
+  /**
+   * The builds skipped within the interval replace each other in a single analysis run once it elapsed: the last one
+   * is analyzed, once, even if no build follows it that day.
+   *
+   * @param lastAnalysis time of the last analysis, or null if the job was never analyzed
+   * @param now current time
+   * @return end of the interval, or null if the analysis is not deferred to it
+   */
+  Calendar getNextAnalysis(Long lastAnalysis, long now) {
+    if (!isAnalyzeLastBuildOfDay() || isTooSoon(lastAnalysis, now) == null) {
+      return null;
+    }
+    Calendar nextAnalysis = Calendar.getInstance();
+    nextAnalysis.setTimeInMillis(lastAnalysis + TimeUnit.MINUTES.toMillis(getMinAnalysisInterval()));
+    return nextAnalysis;
+  }
+
+  /**
+   * Checks the minimum interval since the last analysis of the job.
+   *
+   * @param lastAnalysis time of the last analysis, or null if the job was never analyzed
+   * @param now current time
+   * @return message explaining why the analysis is skipped, or null if it can run
+   */
+  String isTooSoon(Long lastAnalysis, long now) {
+    if (lastAnalysis == null) {
+      return null;
+    }
+    long nextAnalysis = lastAnalysis + TimeUnit.MINUTES.toMillis(getMinAnalysisInterval());
+    if (now >= nextAnalysis) {
+      return null;
+    }
+    return Messages.SonarPublisher_TooSoon(Util.getTimeSpanString(now - lastAnalysis), getMinAnalysisInterval());
+  }
+
+  /**
+   * Checks the result and the causes of a build against the triggers.
+   *
+   * @param result result of the build, null if it has none yet
+   * @param causes causes of the build
+   * @return message explaining why the analysis is skipped, or null if the triggers let it run
+   */
+  private String isSkipSonar(Result result, List<Cause> causes) {
+    // No result yet when checked before the build starts
+    result = result == null ? Result.SUCCESS : result;
+    if (isSkipIfBuildFails() && result.isWorseThan(Result.UNSTABLE)) {
+      return Messages.SonarPublisher_BadBuildStatus(result.toString());
+    } else if (result.isWorseThan(Result.FAILURE)) {
+      return Messages.SonarPublisher_BadBuildStatus(result.toString());
+    } else if (!isScmBuilds() && hasCause(causes, SCMTrigger.SCMTriggerCause.class)) {
       return Messages.SonarPublisher_SCMBuild();
-    } else if (!isTimerBuilds() && isTrigger(build, TimerTrigger.TimerTriggerCause.class)) {
+    } else if (!isTimerBuilds() && hasCause(causes, TimerTrigger.TimerTriggerCause.class)) {
       return Messages.SonarPublisher_TimerBuild();
-    } else if (!isUserBuilds() && isTrigger(build, Cause.UserCause.class)) {
+    } else if (!isUserBuilds() && hasCause(causes, Cause.UserCause.class)) {
       return Messages.SonarPublisher_UserBuild();
-    } else if (!isSnapshotDependencyBuilds() && isTrigger(build, Cause.UpstreamCause.class)) {
+    } else if (!isSnapshotDependencyBuilds() && hasCause(causes, Cause.UpstreamCause.class)) {
       return Messages.SonarPublisher_SnapshotDepBuild();
     }
     return null;
   }
 
+  /**
+   * Returns the most recent build of the job started after the specified one whose analysis covers it, if any:
+   * a running build the triggers let through, which will publish its own analysis, or a completed build that was
+   * analyzed or deferred, in which case analyzing an older state would overwrite its results on the server.
+   *
+   * @param build build
+   * @return newer build, or null if no newer build is analyzed
+   */
+  private AbstractBuild<?, ?> getNewerAnalyzedBuild(AbstractBuild<?, ?> build) {
+    AbstractProject<?, ?> project = build.getProject();
+    for (AbstractBuild<?, ?> newer = project.getLastBuild(); newer != null && newer.getNumber() > build.getNumber(); newer = newer
+        .getPreviousBuild()) {
+      if (newer.isBuilding() ? isSkipSonar(newer.getResult(), getCauses(newer)) == null : isAnalyzed(newer)) {
+        return newer;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isAnalyzed(AbstractBuild<?, ?> build) {
+    if (build.getAction(BuildSonarAction.class) != null) {
+      return true;
+    }
+    for (DeferredAnalyses.Entry entry : DeferredAnalyses.get().getEntries()) {
+      if (entry.getJob().equals(build.getProject().getFullName()) && entry.getBuildNumber() == build.getNumber()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Returns true, if specified build triggered by specified trigger.
    *
@@ -122,9 +394,25 @@ public class TriggersConfig implements Serializable {
    * @return true, if specified build triggered by specified trigger
    */
   private static boolean isTrigger(AbstractBuild<?, ?> build, Class<? extends hudson.model.Cause> trigger) {
-    CauseAction buildCause = build.getAction(CauseAction.class);
-    List<Cause> buildCauses = buildCause.getCauses();
-    for (Cause cause : buildCauses) {
+    return hasCause(getCauses(build), trigger);
+  }
+
+  /**
+   * The combinations of a matrix project are triggered by their parent build.
+   */
+  private static List<Cause> getCauses(AbstractBuild<?, ?> build) {
+    if (build instanceof MatrixRun && ((MatrixRun) build).getParentBuild() != null) {
+      build = ((MatrixRun) build).getParentBuild();
+    }
+    return getCauses(build.getAction(CauseAction.class));
+  }
+
+  private static List<Cause> getCauses(CauseAction causeAction) {
+    return causeAction == null ? Collections.<Cause> emptyList() : causeAction.getCauses();
+  }
+
+  private static boolean hasCause(List<Cause> causes, Class<? extends hudson.model.Cause> trigger) {
+    for (Cause cause : causes) {
       if (trigger.isInstance(cause)) {
         return true;
       }
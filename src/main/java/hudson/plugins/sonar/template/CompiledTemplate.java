@@ -0,0 +1,210 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.template;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.commons.io.IOUtils;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Template parsed once into literal segments and <tt>$slot$</tt> segments, and rendered in a single pass.
+ * Parsed templates are immutable and cached per classloader.
+ *
+ * @since 1.6.1.thales.16
+ */
+public final class CompiledTemplate {
+  public static final String ENCODING = "UTF-8";
+
+  private static final Map<ClassLoader, Map<String, CompiledTemplate>> CACHE = new WeakHashMap<ClassLoader, Map<String, CompiledTemplate>>();
+
+  private final String path;
+  /**
+   * One more literal than slots: literals[0] slots[0] literals[1] ... slots[n-1] literals[n].
+   */
+  private final String[] literals;
+  private final String[] slots;
+  private final Set<String> slotNames;
+  private final int length;
+
+  private CompiledTemplate(String path, List<String> literals, List<String> slots) {
+    this.path = path;
+    this.literals = literals.toArray(new String[literals.size()]);
+    this.slots = slots.toArray(new String[slots.size()]);
+    this.slotNames = Collections.unmodifiableSet(new LinkedHashSet<String>(slots));
+    int length = 0;
+    for (String literal : literals) {
+      length += literal.length();
+    }
+    this.length = length;
+  }
+
+  /**
+   * @return the template found in the classloader
+   * @throws TemplateException if the template can't be read
+   */
+  public static CompiledTemplate get(ClassLoader classLoader, String path) {
+    synchronized (CACHE) {
+      Map<String, CompiledTemplate> templates = CACHE.get(classLoader);
+      if (templates == null) {
+        templates = new HashMap<String, CompiledTemplate>();
+        CACHE.put(classLoader, templates);
+      }
+      CompiledTemplate template = templates.get(path);
+      if (template == null) {
+        template = parse(path, load(classLoader, path));
+        templates.put(path, template);
+      }
+      return template;
+    }
+  }
+
+  /**
+   * @param expectedSlots all the slots the caller fills
+   * @return the template found in the classloader
+   * @throws TemplateException if the template can't be read, or if its slots are not exactly the expected ones
+   */
+  public static CompiledTemplate get(ClassLoader classLoader, String path, String... expectedSlots) {
+    CompiledTemplate template = get(classLoader, path);
+    Set<String> expected = new LinkedHashSet<String>(Arrays.asList(expectedSlots));
+    if (!template.slotNames.equals(expected)) {
+      Set<String> missing = new LinkedHashSet<String>(expected);
+      missing.removeAll(template.slotNames);
+      Set<String> unused = new LinkedHashSet<String>(template.slotNames);
+      unused.removeAll(expected);
+      throw new TemplateException("Template " + path + " doesn't match its usage, missing slots: " + missing
+          + ", slots never filled: " + unused);
+    }
+    return template;
+  }
+
+  private static String load(ClassLoader classLoader, String path) {
+    InputStream stream = null;
+    try {
+      stream = classLoader.getResourceAsStream(path);
+      if (stream == null) {
+        throw new TemplateException("Template not found in classloader: " + path);
+      }
+      return IOUtils.toString(stream, ENCODING);
+    }
+    catch (IOException e) {
+      throw new TemplateException("Could not read template: " + path, e);
+    }
+    finally {
+      closeQuietly(stream);
+    }
+  }
+
+  /**
+   * A slot is a name made of letters, digits, '.', '-' and '_' between two '$'. Any other '$' is a literal.
+   */
+  static CompiledTemplate parse(String path, String text) {
+    List<String> literals = new ArrayList<String>();
+    List<String> slots = new ArrayList<String>();
+    StringBuilder literal = new StringBuilder();
+    int i = 0;
+    while (i < text.length()) {
+      char c = text.charAt(i);
+      if (c == '$') {
+        int end = i + 1;
+        while (end < text.length() && isSlotChar(text.charAt(end))) {
+          end++;
+        }
+        if (end > i + 1 && end < text.length() && text.charAt(end) == '$') {
+          literals.add(literal.toString());
+          literal.setLength(0);
+          slots.add(text.substring(i + 1, end));
+          i = end + 1;
+          continue;
+        }
+      }
+      literal.append(c);
+      i++;
+    }
+    literals.add(literal.toString());
+    return new CompiledTemplate(path, literals, slots);
+  }
+
+  private static boolean isSlotChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '.' || c == '-' || c == '_';
+  }
+
+  public Set<String> getSlots() {
+    return slotNames;
+  }
+
+  /**
+   * @param values value of every slot
+   * @throws TemplateException if a slot has no value
+   */
+  public void render(Map<String, String> values, Writer out) throws IOException {
+    for (int i = 0; i < slots.length; i++) {
+      out.write(literals[i]);
+      String value = values.get(slots[i]);
+      if (value == null) {
+        throw new TemplateException("No value for slot " + slots[i] + " of template " + path);
+      }
+      out.write(value);
+    }
+    out.write(literals[slots.length]);
+  }
+
+  public String render(Map<String, String> values) {
+    StringWriter out = new StringWriter(length + 64 * slots.length);
+    try {
+      render(values, out);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return out.toString();
+  }
+
+  /**
+   * Slots without value are kept as they are, as {@link SimpleTemplate} always did.
+   */
+  String renderLeniently(Map<String, String> values) {
+    StringBuilder out = new StringBuilder(length + 64 * slots.length);
+    for (int i = 0; i < slots.length; i++) {
+      out.append(literals[i]);
+      String value = values.get(slots[i]);
+      if (value == null) {
+        out.append('$').append(slots[i]).append('$');
+      } else {
+        out.append(value);
+      }
+    }
+    out.append(literals[slots.length]);
+    return out.toString();
+  }
+
+  @Override
+  public String toString() {
+    return path;
+  }
+}
@@ -16,48 +16,37 @@
 package hudson.plugins.sonar.template;
 
 import hudson.FilePath;
-import org.apache.commons.io.IOUtils;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStreamWriter;
+import java.util.HashMap;
+import java.util.Map;
 
-import static org.apache.commons.io.IOUtils.closeQuietly;
-
+/**
+ * Mutable facade on a {@link CompiledTemplate}, slots which are not set are rendered as they are.
+ */
 public class SimpleTemplate {
-  private String template;
+  private final CompiledTemplate template;
+  private final Map<String, String> attributes = new HashMap<String, String>();
 
   public SimpleTemplate(String path) {
-    InputStream stream = null;
-    try {
-      stream = getClass().getClassLoader().getResourceAsStream(path);
-      if (stream == null) {
-        throw new TemplateException("Template not found in classloader: " + path);
-      }
-      template = IOUtils.toString(stream);
-    }
-    catch (IOException e) {
-      throw new TemplateException("Could not read template: " + path, e);
-    }
-    finally {
-      closeQuietly(stream);
-    }
+    template = CompiledTemplate.get(getClass().getClassLoader(), path);
   }
 
   public void setAttribute(String key, String value) {
-    template = template.replace('$' + key + '$', value);
+    attributes.put(key, value);
   }
 
   @Override
   public String toString() {
-    return template;
+    return template.renderLeniently(attributes);
   }
 
   public void write(FilePath path, String pomName) throws IOException, InterruptedException {
     FilePath pom = path.child(pomName);
     OutputStreamWriter outputStream = new OutputStreamWriter(pom.write());
     try {
-      outputStream.write(template);
+      outputStream.write(toString());
     }
     finally {
       outputStream.close();
@@ -17,16 +17,27 @@ package hudson.plugins.sonar.template;
 
 import hudson.EnvVars;
 import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.Util;
+import hudson.plugins.sonar.AnalysisContext;
 import hudson.plugins.sonar.SonarPublisher;
 import hudson.plugins.sonar.model.LightProjectConfig;
 import hudson.plugins.sonar.model.ReportsConfig;
 import hudson.plugins.sonar.utils.Utils;
+import hudson.remoting.VirtualChannel;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -35,13 +46,44 @@ import org.apache.commons.lang.StringUtils;
  * @since 1.2
  */
 public final class SonarPomGenerator {
+	private static final String POM_TEMPLATE = "hudson/plugins/sonar/sonar-light-pom.template";
+
+	private static final String[] POM_SLOTS = { "groupId", "artifactId", "projectName", "projectVersion", "description",
+			"outputDirectory", "sourceDirectory", "compilerVersion", "javaVersion", "encoding", "srcDirsPlugin",
+			"project.build.sourceEncoding", "sonar.dynamicAnalysis", "sonar.surefire.reportsPath", "sonar.cobertura.reportPath",
+			"sonar.clover.reportPath", "sonar.phase", "sonar.sources", "sonar.language" };
+
+	private static final String SOURCES_TEMPLATE = "hudson/plugins/sonar/sonar-multi-sources.template";
+
+	/**
+	 * @since 1.6.1.thales.16
+	 */
+	public static void generatePomForNonMavenProject(LightProjectConfig project, AnalysisContext context, String pomName) throws IOException, InterruptedException {
+		boolean written = generatePomForNonMavenProject(project, context.getWorkspace(), pomName, context.getEnv(), context.getInstallation().isFourOrHigher(),
+				Utils.getProjectSrcDirsList(project.getProjectSrcDir(), context));
+		if (written) {
+			context.getListener().getLogger().println("[SonarPlugin] [INFO] POM written: " + pomName);
+		} else {
+			context.getListener().getLogger().println("[SonarPlugin] [INFO] POM unchanged, reusing " + pomName);
+		}
+	}
+
 	public static void generatePomForNonMavenProject(LightProjectConfig project, FilePath root, String pomName, EnvVars env, boolean isSonarFourOrHigher) throws IOException, InterruptedException {
-		SimpleTemplate pomTemplate = new SimpleTemplate("hudson/plugins/sonar/sonar-light-pom.template");
-		pomTemplate.setAttribute("groupId", SonarPublisher.expandJenkinsVars(env,project.getGroupId()));
-		//pomTemplate.setAttribute("artifactId", project.getArtifactId());
-		pomTemplate.setAttribute("artifactId", SonarPublisher.expandJenkinsVars(env, project.getArtifactId()));
-		pomTemplate.setAttribute("projectName", SonarPublisher.expandJenkinsVars(env, project.getProjectName()));
-		//pomTemplate.setAttribute("projectName", project.getProjectName());  // FIXME
+		generatePomForNonMavenProject(project, root, pomName, env, isSonarFourOrHigher,
+				Utils.getProjectSrcDirsList(project.getProjectSrcDir(), root, env));
+	}
+
+	/**
+	 * @return false if the POM already had the expected content and was left untouched
+	 */
+	private static boolean generatePomForNonMavenProject(LightProjectConfig project, FilePath root, String pomName, EnvVars env, boolean isSonarFourOrHigher,
+			List<String> srcDirs) throws IOException, InterruptedException {
+		Map<String, String> pomTemplate = new HashMap<String, String>();
+		pomTemplate.put("groupId", SonarPublisher.expandJenkinsVars(env,project.getGroupId()));
+		//pomTemplate.put("artifactId", project.getArtifactId());
+		pomTemplate.put("artifactId", SonarPublisher.expandJenkinsVars(env, project.getArtifactId()));
+		pomTemplate.put("projectName", SonarPublisher.expandJenkinsVars(env, project.getProjectName()));
+		//pomTemplate.put("projectName", project.getProjectName());  // FIXME
 		// Godin:
 		// env.expand
 		// because
@@ -49,17 +91,16 @@ public final class SonarPomGenerator {
 		// can
 		// be
 		// "${JOB_NAME}"
-		//pomTemplate.setAttribute("projectVersion", StringUtils.isEmpty(project.getProjectVersion()) ? "1.0" : project
+		//pomTemplate.put("projectVersion", StringUtils.isEmpty(project.getProjectVersion()) ? "1.0" : project
 		//							.getProjectVersion());
-		pomTemplate.setAttribute("projectVersion", StringUtils.isEmpty(project.getProjectVersion()) ? "1.0" : SonarPublisher.expandJenkinsVars(env, project
+		pomTemplate.put("projectVersion", StringUtils.isEmpty(project.getProjectVersion()) ? "1.0" : SonarPublisher.expandJenkinsVars(env, project
 				.getProjectVersion()));
-		pomTemplate.setAttribute("javaVersion", StringUtils.isEmpty(project.getJavaVersion()) ? "1.5" : SonarPublisher.expandJenkinsVars(env,project.getJavaVersion()));
-		pomTemplate.setAttribute("compilerVersion", StringUtils.isEmpty(project.getCompilerVersion()) ? "" : SonarPublisher.expandJenkinsVars(env,project.getCompilerVersion()));
+		pomTemplate.put("javaVersion", StringUtils.isEmpty(project.getJavaVersion()) ? "1.5" : SonarPublisher.expandJenkinsVars(env,project.getJavaVersion()));
+		pomTemplate.put("compilerVersion", StringUtils.isEmpty(project.getCompilerVersion()) ? "" : SonarPublisher.expandJenkinsVars(env,project.getCompilerVersion()));
 
-		List<String> srcDirs = Utils.getProjectSrcDirsList(project.getProjectSrcDir(), root, env);
 		boolean multiSources = srcDirs.size() > 1;
 		setPomElement("sourceDirectory", srcDirs.size() == 0 ? "src" : srcDirs.get(0), pomTemplate);
-		pomTemplate.setAttribute("srcDirsPlugin", multiSources ? generateSrcDirsPluginTemplate(srcDirs).toString() : "");
+		pomTemplate.put("srcDirsPlugin", multiSources ? generateSrcDirsPlugin(srcDirs) : "");
 
 		setPomElement("project.build.sourceEncoding", SonarPublisher.expandJenkinsVars(env,project.getProjectSrcEncoding()), pomTemplate);
 		setPomElement("encoding", SonarPublisher.expandJenkinsVars(env,project.getProjectSrcEncoding()), pomTemplate);
@@ -70,7 +111,7 @@ public final class SonarPomGenerator {
 		setPomElement("sonar.language", project.getLanguage(), pomTemplate);
 
 		ReportsConfig reports = project.isReuseReports() ? project.getReports()
-				: new ReportsConfig();
+				: ReportsConfig.EMPTY;
 		if (!isSonarFourOrHigher){
 			setPomElement("sonar.phase", multiSources ? "generate-sources" : "", pomTemplate);
 			setPomElement("sonar.dynamicAnalysis", project.isReuseReports() ? "reuseReports" : "false",
@@ -89,21 +130,60 @@ public final class SonarPomGenerator {
 		setPomElement("sonar.clover.reportPath", reports.getCloverReportPath(), project
 				.isReuseReports(), pomTemplate);
 
-		pomTemplate.write(root, pomName);
+		byte[] pom = CompiledTemplate.get(SonarPomGenerator.class.getClassLoader(), POM_TEMPLATE, POM_SLOTS).render(pomTemplate)
+				.getBytes(CompiledTemplate.ENCODING);
+		return writeIfChanged(root.child(pomName), pom);
 	}
 
-	private static SimpleTemplate generateSrcDirsPluginTemplate(List<String> srcDirs)
-	throws IOException, InterruptedException
-	{
-		SimpleTemplate srcTemplate = new SimpleTemplate(
-		"hudson/plugins/sonar/sonar-multi-sources.template");
-		StringBuffer sourcesXml = new StringBuffer();
+	/**
+	 * Rewriting an identical POM would only change its timestamp, which makes Maven and file watchers believe the
+	 * project changed. The digest of the existing file is computed where the file is, in a single call.
+	 * 
+	 * @return true if the file has been written
+	 */
+	static boolean writeIfChanged(FilePath file, byte[] content) throws IOException, InterruptedException {
+		String digest = Util.getDigestOf(new ByteArrayInputStream(content));
+		if (digest.equals(file.act(new DigestIfExists()))) {
+			return false;
+		}
+		OutputStream out = file.write();
+		try {
+			out.write(content);
+		}
+		finally {
+			out.close();
+		}
+		return true;
+	}
+
+	/**
+	 * @return MD5 digest of the file, or null if it doesn't exist
+	 */
+	private static final class DigestIfExists implements FileCallable<String> {
+		private static final long serialVersionUID = 1L;
+
+		public String invoke(File f, VirtualChannel channel) throws IOException {
+			if (!f.isFile()) {
+				return null;
+			}
+			InputStream in = new FileInputStream(f);
+			try {
+				return Util.getDigestOf(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+	}
+
+	private static String generateSrcDirsPlugin(List<String> srcDirs) {
+		StringBuilder sourcesXml = new StringBuilder();
 		for (int i = 1; i < srcDirs.size(); i++) {
 			sourcesXml.append("<source><![CDATA[").append(StringUtils.trim(srcDirs.get(i))).append(
 			"]]></source>\n");
 		}
-		srcTemplate.setAttribute("sources", sourcesXml.toString());
-		return srcTemplate;
+		return CompiledTemplate.get(SonarPomGenerator.class.getClassLoader(), SOURCES_TEMPLATE, "sources")
+				.render(Collections.singletonMap("sources", sourcesXml.toString()));
 	}
 	
 	private static String generateSonarSources(List<String> srcDirs){
@@ -115,12 +195,12 @@ public final class SonarPomGenerator {
 		return sb.toString();
 	}
 
-	private static void setPomElement(String tagName, String tagValue, SimpleTemplate template) {
+	private static void setPomElement(String tagName, String tagValue, Map<String, String> template) {
 		setPomElement(tagName, tagValue, true, template);
 	}
 
 	private static void setPomElement(String tagName, String tagValue, boolean enabled,
-			SimpleTemplate template)
+			Map<String, String> template)
 	{
 		String tagContent;
 		if (enabled && StringUtils.isNotBlank(tagValue)) {
@@ -128,7 +208,7 @@ public final class SonarPomGenerator {
 		} else {
 			tagContent = "";
 		}
-		template.setAttribute(tagName, tagContent);
+		template.put(tagName, tagContent);
 	}
 
 	public static List<FilePath> listFiles(FilePath directory, FileFilter filter)
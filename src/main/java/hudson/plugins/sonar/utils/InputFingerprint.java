@@ -0,0 +1,276 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.utils;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.Util;
+import hudson.model.Node;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Fingerprint of what an analysis reads: a Merkle-style hash of the analyzed directories and files, computed on the
+ * node with one task per input, combined with the effective analysis properties. The fingerprint of the last successful
+ * analysis of each job is kept in the root directory of the node.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public final class InputFingerprint implements FileCallable<String> {
+	private static final long serialVersionUID = 1L;
+
+	public static final String DIRECTORY = "sonar-fingerprints";
+
+	private static final int MAX_THREADS = 8;
+
+	private static final String MISSING = "missing";
+
+	/**
+	 * Paths to hash, by description.
+	 */
+	private final Map<String, String> inputs = new LinkedHashMap<String, String>();
+
+	private final String properties;
+
+	/**
+	 * @param properties effective properties of the analysis
+	 */
+	public InputFingerprint(String properties) {
+		this.properties = properties;
+	}
+
+	/**
+	 * @param description what the path is, part of the fingerprint
+	 * @param path absolute, or relative to the workspace. Missing paths are part of the fingerprint too.
+	 */
+	public InputFingerprint add(String description, String path) {
+		inputs.put(description + " " + path, path);
+		return this;
+	}
+
+	public String invoke(final File workspace, VirtualChannel channel) throws IOException, InterruptedException {
+		List<Callable<String>> tasks = new ArrayList<Callable<String>>();
+		for (final String path : inputs.values()) {
+			tasks.add(new Callable<String>() {
+				public String call() throws IOException {
+					File file = new File(path);
+					if (!file.isAbsolute()) {
+						file = new File(workspace, path);
+					}
+					return file.exists() ? Util.toHexString(hash(file)) : MISSING;
+				}
+			});
+		}
+
+		MessageDigest digest = newDigest();
+		update(digest, properties == null ? "" : properties);
+		if (tasks.isEmpty()) {
+			return Util.toHexString(digest.digest());
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(tasks.size(), MAX_THREADS));
+		try {
+			List<Future<String>> results = executor.invokeAll(tasks);
+			int i = 0;
+			for (String description : inputs.keySet()) {
+				update(digest, description);
+				update(digest, get(results.get(i++)));
+			}
+			return Util.toHexString(digest.digest());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Hashes a file from its content, and a directory from the names and hashes of its children.
+	 */
+	static byte[] hash(File file) throws IOException {
+		return hash(file, new HashSet<String>());
+	}
+
+	/**
+	 * Symbolic links are followed, as the analysis does, except a link back to a directory being hashed.
+	 * 
+	 * @param ancestors canonical paths of the directories being hashed
+	 */
+	private static byte[] hash(File file, Set<String> ancestors) throws IOException {
+		MessageDigest digest = newDigest();
+		if (file.isDirectory()) {
+			String canonicalPath = file.getCanonicalPath();
+			if (!ancestors.add(canonicalPath)) {
+				digest.update((byte) 'c');
+				return digest.digest();
+			}
+			try {
+				digest.update((byte) 'd');
+				String[] names = file.list();
+				if (names != null) {
+					Arrays.sort(names);
+					for (String name : names) {
+						update(digest, name);
+						digest.update(hash(new File(file, name), ancestors));
+					}
+				}
+			} finally {
+				ancestors.remove(canonicalPath);
+			}
+		} else {
+			digest.update((byte) 'f');
+			InputStream in = new FileInputStream(file);
+			try {
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					digest.update(buffer, 0, read);
+				}
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+		}
+		return digest.digest();
+	}
+
+	private static void update(MessageDigest digest, String value) throws IOException {
+		digest.update(value.getBytes("UTF-8"));
+		digest.update((byte) 0);
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String get(Future<String> result) throws IOException, InterruptedException {
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			throw new IOException("Fingerprint of the analyzed inputs failed: " + e.getCause());
+		}
+	}
+
+	/**
+	 * @return file keeping the last fingerprint of the job on the node, or null if the node is offline
+	 */
+	public static FilePath getFile(Node node, String job) {
+		FilePath rootPath = node == null ? null : node.getRootPath();
+		return rootPath == null ? null : rootPath.child(DIRECTORY).child(Util.getDigestOf(job));
+	}
+
+	/**
+	 * @return fingerprint of the last successful analysis of the job on the node, or null if unknown
+	 */
+	public static Record load(Node node, String job) throws IOException, InterruptedException {
+		FilePath file = getFile(node, job);
+		if (file == null || !file.exists()) {
+			return null;
+		}
+		Properties properties = new Properties();
+		InputStream in = file.read();
+		try {
+			properties.load(in);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+		String fingerprint = properties.getProperty("fingerprint");
+		String build = properties.getProperty("build");
+		if (fingerprint == null || build == null) {
+			return null;
+		}
+		try {
+			return new Record(fingerprint, Integer.parseInt(build), properties.getProperty("url"));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	public static void save(Node node, String job, Record record) throws IOException, InterruptedException {
+		FilePath file = getFile(node, job);
+		if (file == null) {
+			return;
+		}
+		Properties properties = new Properties();
+		properties.setProperty("job", job);
+		properties.setProperty("fingerprint", record.getFingerprint());
+		properties.setProperty("build", String.valueOf(record.getBuildNumber()));
+		if (record.getUrl() != null) {
+			properties.setProperty("url", record.getUrl());
+		}
+		file.getParent().mkdirs();
+		OutputStream out = file.write();
+		try {
+			properties.store(out, null);
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+	}
+
+	/**
+	 * Fingerprint of a successful analysis, with the build and the dashboard it produced.
+	 */
+	public static final class Record implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final String fingerprint;
+
+		private final int buildNumber;
+
+		private final String url;
+
+		public Record(String fingerprint, int buildNumber, String url) {
+			this.fingerprint = fingerprint;
+			this.buildNumber = buildNumber;
+			this.url = url;
+		}
+
+		public String getFingerprint() {
+			return fingerprint;
+		}
+
+		public int getBuildNumber() {
+			return buildNumber;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.utils;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.model.Node;
+import hudson.plugins.sonar.AnalysisContext;
+import hudson.remoting.VirtualChannel;
+import hudson.tasks.Maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Maven repository shared by the jobs of a node, seeded once with the artifacts needed by the analysis. The jobs
+ * never use it directly: missing artifacts are copied into their private repository, so the node repository stays
+ * read-only once seeded.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public final class NodeMavenRepository {
+	public static final String DIRECTORY = "sonar-maven-repository";
+
+	static final String BUILD_HELPER = "org.codehaus.mojo:build-helper-maven-plugin:1.1";
+
+	/**
+	 * Version of sonar-maven-plugin seeded when the installation does not configure one.
+	 */
+	static final String DEFAULT_MOJO_VERSION = "2.2";
+
+	private static final String DEPENDENCY_GET = "org.apache.maven.plugins:maven-dependency-plugin:2.8:get";
+
+	private static final String MARKER_PREFIX = ".seeded-";
+
+	/**
+	 * Repositories to seed from, comma separated, for example a local <tt>file://</tt> repository.
+	 * By default the repositories of the Maven settings are used.
+	 */
+	public static final String REMOTE_REPOSITORIES = System.getProperty(NodeMavenRepository.class.getName() + ".remoteRepositories");
+
+	/**
+	 * Seeding of a node is done by one build at a time, keyed by node name and repository path since nodes may share
+	 * the same root path.
+	 */
+	private static final ConcurrentMap<String, Object> LOCKS = new ConcurrentHashMap<String, Object>();
+
+	/**
+	 * @return the repository of the node, or null if the node is offline
+	 */
+	public static FilePath getRoot(Node node) {
+		FilePath rootPath = node == null ? null : node.getRootPath();
+		return rootPath == null ? null : rootPath.child(DIRECTORY);
+	}
+
+	/**
+	 * @param mojoVersion version of sonar-maven-plugin, {@link #DEFAULT_MOJO_VERSION} if blank
+	 * @return the artifacts to seed, as groupId:artifactId:version
+	 */
+	static List<String> getArtifacts(String mojoVersion) {
+		List<String> artifacts = new ArrayList<String>();
+		String version = StringUtils.isBlank(mojoVersion) ? DEFAULT_MOJO_VERSION : mojoVersion.trim();
+		artifacts.add("org.codehaus.mojo:sonar-maven-plugin:" + version);
+		artifacts.add(BUILD_HELPER);
+		return artifacts;
+	}
+
+	/**
+	 * Seeds the repository of the node if needed and copies it into the private repository of the job.
+	 */
+	public static void prepare(AnalysisContext context, String mavenName, FilePath privateRepository) throws IOException, InterruptedException {
+		FilePath root = getRoot(context.getNode());
+		if (root == null) {
+			return;
+		}
+		List<String> artifacts = getArtifacts(context.getInstallation().getMojoVersion());
+		if (!seed(context, mavenName, context.getNode().getNodeName(), root, artifacts)) {
+			context.getListener().getLogger().println("[SonarPlugin] [WARN] Could not seed the Maven repository of the node, artifacts will be downloaded by the job");
+			return;
+		}
+		int copied = root.act(new Layer(privateRepository.getRemote()));
+		if (copied > 0) {
+			context.getListener().getLogger().println("[SonarPlugin] [INFO] " + copied + " files copied from " + root.getRemote());
+		}
+	}
+
+	private static boolean seed(AnalysisContext context, String mavenName, String nodeName, FilePath root, List<String> artifacts) throws IOException, InterruptedException {
+		String key = nodeName + ':' + root.getRemote();
+		LOCKS.putIfAbsent(key, new Object());
+		synchronized (LOCKS.get(key)) {
+			for (String artifact : artifacts) {
+				FilePath marker = root.child(MARKER_PREFIX + artifact.replace(':', '_'));
+				if (marker.exists()) {
+					continue;
+				}
+				context.getListener().getLogger().println("[SonarPlugin] [INFO] Seeding " + artifact + " into " + root.getRemote());
+				StringBuilder properties = new StringBuilder();
+				properties.append("maven.repo.local=").append(root.getRemote()).append('\n');
+				properties.append("artifact=").append(artifact).append('\n');
+				if (StringUtils.isNotBlank(REMOTE_REPOSITORIES)) {
+					properties.append("remoteRepositories=").append(REMOTE_REPOSITORIES).append('\n');
+				}
+				Maven maven = new Maven("-B " + DEPENDENCY_GET, mavenName, null, properties.toString(), null);
+				if (!maven.perform(context.getBuild(), context.getLauncher(), context.getListener())) {
+					return false;
+				}
+				marker.touch(System.currentTimeMillis());
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Copies the files of the node repository which are missing in the private repository, runs on the node.
+	 */
+	static final class Layer implements FileCallable<Integer> {
+		private static final long serialVersionUID = 1L;
+
+		private final String privateRepository;
+
+		Layer(String privateRepository) {
+			this.privateRepository = privateRepository;
+		}
+
+		public Integer invoke(File root, VirtualChannel channel) throws IOException {
+			if (!root.isDirectory()) {
+				return 0;
+			}
+			return copyMissing(root, new File(privateRepository));
+		}
+
+		private static int copyMissing(File from, File to) throws IOException {
+			int copied = 0;
+			File[] children = from.listFiles();
+			if (children == null) {
+				return 0;
+			}
+			for (File child : children) {
+				if (child.getName().startsWith(MARKER_PREFIX)) {
+					continue;
+				}
+				File target = new File(to, child.getName());
+				if (child.isDirectory()) {
+					copied += copyMissing(child, target);
+				} else if (!target.exists()) {
+					// Copy then rename, so that an interrupted copy is not mistaken for an artifact
+					File part = new File(to, child.getName() + ".part");
+					FileUtils.copyFile(child, part);
+					if (!part.renameTo(target)) {
+						part.delete();
+						throw new IOException("Could not create " + target);
+					}
+					copied++;
+				}
+			}
+			return copied;
+		}
+	}
+
+	/**
+	 * Hide utility-class constructor.
+	 */
+	private NodeMavenRepository() {
+	}
+}
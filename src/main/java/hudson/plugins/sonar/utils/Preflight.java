@@ -0,0 +1,267 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.utils;
+
+import hudson.FilePath.FileCallable;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Checks, in one call to the node, that everything the analyzer needs is there before it is started: the
+ * configured directories, the resolved source directories and the Java executable. The checks run concurrently on
+ * the node and all the problems are reported at once.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public final class Preflight implements FileCallable<Preflight.Report> {
+	private static final long serialVersionUID = 1L;
+
+	private static final int MAX_THREADS = 8;
+
+	/**
+	 * Paths which must exist, by description.
+	 */
+	private final Map<String, String> requiredPaths = new LinkedHashMap<String, String>();
+
+	/**
+	 * Paths which are ignored by the analyzer when missing, by description.
+	 */
+	private final Map<String, String> optionalPaths = new LinkedHashMap<String, String>();
+
+	private String sourcePattern;
+
+	private List<String> sourceDirs;
+
+	private String javaExecutable;
+
+	private String searchPath;
+
+	/**
+	 * @param description what the path is, for the report
+	 * @param path absolute, or relative to the workspace
+	 */
+	public Preflight requirePath(String description, String path) {
+		requiredPaths.put(description + " " + path, path);
+		return this;
+	}
+
+	/**
+	 * Missing optional paths are reported as warnings.
+	 */
+	public Preflight checkPath(String description, String path) {
+		optionalPaths.put(description + " " + path, path);
+		return this;
+	}
+
+	/**
+	 * @param pattern configured source directories
+	 * @param dirs directories resolved from the pattern
+	 */
+	public Preflight requireSources(String pattern, List<String> dirs) {
+		this.sourcePattern = pattern;
+		this.sourceDirs = new ArrayList<String>(dirs);
+		return this;
+	}
+
+	/**
+	 * @param executable path to the executable, or name of the executable to look for in the search path
+	 * @param path search path of the build
+	 */
+	public Preflight requireJava(String executable, String path) {
+		this.javaExecutable = executable;
+		this.searchPath = path;
+		return this;
+	}
+
+	/**
+	 * Problems found, with the time spent on the node.
+	 */
+	public static final class Report implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> errors;
+
+		private final List<String> warnings;
+
+		private final long duration;
+
+		Report(List<String> errors, List<String> warnings, long duration) {
+			this.errors = errors;
+			this.warnings = warnings;
+			this.duration = duration;
+		}
+
+		public List<String> getErrors() {
+			return Collections.unmodifiableList(errors);
+		}
+
+		public List<String> getWarnings() {
+			return Collections.unmodifiableList(warnings);
+		}
+
+		public boolean hasErrors() {
+			return !errors.isEmpty();
+		}
+
+		public void print(PrintStream logger) {
+			for (String warning : warnings) {
+				logger.println("[SonarPlugin] [WARN] " + warning);
+			}
+			for (String error : errors) {
+				logger.println("[SonarPlugin] [ERROR] " + error);
+			}
+			if (hasErrors()) {
+				logger.println("[SonarPlugin] [ERROR] Pre-flight check failed in " + duration + " ms, analysis not launched");
+			}
+		}
+	}
+
+	public Report invoke(final File workspace, VirtualChannel channel) throws IOException, InterruptedException {
+		long start = System.currentTimeMillis();
+		List<Callable<String>> requiredChecks = new ArrayList<Callable<String>>();
+		for (Map.Entry<String, String> entry : requiredPaths.entrySet()) {
+			requiredChecks.add(new PathCheck(workspace, entry.getValue(), "Not found: " + entry.getKey()));
+		}
+		if (sourceDirs != null) {
+			if (sourceDirs.isEmpty()) {
+				requiredChecks.add(new Constant("No source directory matches " + sourcePattern));
+			}
+			for (String sourceDir : sourceDirs) {
+				requiredChecks.add(new PathCheck(workspace, sourceDir, "Source directory not found: " + sourceDir));
+			}
+		}
+		if (javaExecutable != null) {
+			requiredChecks.add(new JavaCheck(javaExecutable, searchPath));
+		}
+		List<Callable<String>> optionalChecks = new ArrayList<Callable<String>>();
+		for (Map.Entry<String, String> entry : optionalPaths.entrySet()) {
+			optionalChecks.add(new PathCheck(workspace, entry.getValue(), "Not found, ignored by the analysis: " + entry.getKey()));
+		}
+
+		List<Callable<String>> checks = new ArrayList<Callable<String>>(requiredChecks);
+		checks.addAll(optionalChecks);
+		if (checks.isEmpty()) {
+			return new Report(new ArrayList<String>(), new ArrayList<String>(), 0);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(checks.size(), MAX_THREADS));
+		try {
+			List<Future<String>> results = executor.invokeAll(checks);
+			List<String> errors = new ArrayList<String>();
+			List<String> warnings = new ArrayList<String>();
+			for (int i = 0; i < results.size(); i++) {
+				String problem = get(results.get(i));
+				if (problem != null) {
+					(i < requiredChecks.size() ? errors : warnings).add(problem);
+				}
+			}
+			return new Report(errors, warnings, System.currentTimeMillis() - start);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static String get(Future<String> result) throws IOException, InterruptedException {
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			throw new IOException("Pre-flight check failed: " + e.getCause());
+		}
+	}
+
+	/**
+	 * @return the problem, or null if the path exists
+	 */
+	private static final class PathCheck implements Callable<String> {
+		private final File workspace;
+		private final String path;
+		private final String problem;
+
+		PathCheck(File workspace, String path, String problem) {
+			this.workspace = workspace;
+			this.path = path;
+			this.problem = problem;
+		}
+
+		public String call() {
+			File file = new File(path);
+			if (!file.isAbsolute()) {
+				file = new File(workspace, path);
+			}
+			return file.exists() ? null : problem;
+		}
+	}
+
+	private static final class Constant implements Callable<String> {
+		private final String problem;
+
+		Constant(String problem) {
+			this.problem = problem;
+		}
+
+		public String call() {
+			return problem;
+		}
+	}
+
+	/**
+	 * @return the problem, or null if the Java executable exists
+	 */
+	private static final class JavaCheck implements Callable<String> {
+		private final String executable;
+		private final String searchPath;
+
+		JavaCheck(String executable, String searchPath) {
+			this.executable = executable;
+			this.searchPath = searchPath;
+		}
+
+		public String call() {
+			if (executable.indexOf('/') >= 0 || executable.indexOf('\\') >= 0) {
+				return isExecutable(new File(executable)) ? null : "Java executable not found: " + executable + ", check the JDK of the job";
+			}
+			if (searchPath == null) {
+				// Can't tell, left to the system
+				return null;
+			}
+			for (String dir : StringUtils.split(searchPath, File.pathSeparatorChar)) {
+				if (isExecutable(new File(dir, executable))) {
+					return null;
+				}
+			}
+			return "'" + executable + "' not found in the PATH of the build, configure a JDK for the job";
+		}
+
+		private static boolean isExecutable(File file) {
+			return file.isFile() || new File(file.getPath() + ".exe").isFile();
+		}
+	}
+}
@@ -21,6 +21,8 @@ import hudson.model.BuildListener;
 import hudson.model.AbstractBuild;
 import hudson.model.Hudson;
 import hudson.model.ParametersAction;
+import hudson.plugins.sonar.AnalysisContext;
+import hudson.plugins.sonar.ChangedFilesPreview;
 import hudson.plugins.sonar.SonarInstallation;
 import hudson.plugins.sonar.SonarPublisher;
 import hudson.plugins.sonar.model.LightProjectConfig;
@@ -29,6 +31,7 @@ import hudson.util.ArgumentListBuilder;
 import org.apache.commons.lang.StringUtils;
 
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * @author Evgeny Mandrikov
@@ -42,16 +45,39 @@ public final class SonarMaven extends Maven {
 
   private SonarPublisher publisher;
 
+  /**
+   * @since 1.6.1.thales.16
+   */
+  private ChangedFilesPreview preview;
+
   public SonarMaven(String targets, String name, String pom, String jvmOptions, boolean usePrivateRepository, SonarPublisher publisher) {
+    this(targets, name, pom, jvmOptions, usePrivateRepository, publisher, null);
+  }
+
+  /**
+   * @param preview preview of the changed files to run instead of a full analysis, or null
+   * @since 1.6.1.thales.16
+   */
+  public SonarMaven(String targets, String name, String pom, String jvmOptions, boolean usePrivateRepository, SonarPublisher publisher,
+      ChangedFilesPreview preview) {
     super(targets + " " + getTarget(publisher.getInstallation()), name, pom, "", jvmOptions, usePrivateRepository);
     this.publisher = publisher;
+    this.preview = preview;
   }
 
   private static String getTarget(SonarInstallation installation) {
+    return TARGET + " " + getSonarGoal(installation);
+  }
+
+  /**
+   * @return the sonar goal, with the configured version of sonar-maven-plugin if any
+   * @since 1.6.1.thales.16
+   */
+  public static String getSonarGoal(SonarInstallation installation) {
     if (StringUtils.isBlank(installation.getMojoVersion())) {
-      return TARGET + " sonar:sonar";
+      return "sonar:sonar";
     } else {
-      return TARGET + " org.codehaus.mojo:sonar-maven-plugin:" + installation.getMojoVersion() + ":sonar";
+      return "org.codehaus.mojo:sonar-maven-plugin:" + installation.getMojoVersion() + ":sonar";
     }
   }
 
@@ -63,12 +89,38 @@ public final class SonarMaven extends Maven {
   protected void wrapUpArguments(ArgumentListBuilder args, String normalizedTarget, AbstractBuild<?, ?> build, Launcher launcher,
       BuildListener listener)
       throws IOException, InterruptedException {
-    ExtendedArgumentListBuilder argsBuilder = new ExtendedArgumentListBuilder(args, launcher.isUnix());
-    argsBuilder.append("sonar.jdbc.driver", getInstallation().getDatabaseDriver());
-    argsBuilder.append("sonar.jdbc.url", getInstallation().getDatabaseUrl()); // TODO can be masked
-    argsBuilder.appendMasked("sonar.jdbc.username", getInstallation().getDatabaseLogin());
-    argsBuilder.appendMasked("sonar.jdbc.password", getInstallation().getDatabasePassword());
-    argsBuilder.append("sonar.host.url", getInstallation().getServerUrl());
+    appendSonarArguments(args, launcher.isUnix(), getInstallation(), publisher);
+    appendPreviewArguments(args, launcher.isUnix(), getInstallation(), preview);
+  }
+
+  /**
+   * Appends the properties turning the analysis into a preview of the changed files.
+   *
+   * @param preview preview of the changed files, or null for a full analysis
+   * @since 1.6.1.thales.16
+   */
+  public static void appendPreviewArguments(ArgumentListBuilder args, boolean unix, SonarInstallation installation, ChangedFilesPreview preview) {
+    if (preview != null) {
+      // Module source directories are only known to Maven: files are included by name
+      ExtendedArgumentListBuilder argsBuilder = new ExtendedArgumentListBuilder(args, unix);
+      for (Map.Entry<String, String> property : preview.getProperties(null, installation.isFourOrHigher()).entrySet()) {
+        argsBuilder.append(property.getKey(), property.getValue());
+      }
+    }
+  }
+
+  /**
+   * Appends the sonar.* properties of the installation and of the publisher.
+   *
+   * @since 1.6.1.thales.16
+   */
+  public static void appendSonarArguments(ArgumentListBuilder args, boolean unix, SonarInstallation installation, SonarPublisher publisher) {
+    ExtendedArgumentListBuilder argsBuilder = new ExtendedArgumentListBuilder(args, unix);
+    argsBuilder.append("sonar.jdbc.driver", installation.getDatabaseDriver());
+    argsBuilder.append("sonar.jdbc.url", installation.getDatabaseUrl()); // TODO can be masked
+    argsBuilder.appendMasked("sonar.jdbc.username", installation.getDatabaseLogin());
+    argsBuilder.appendMasked("sonar.jdbc.password", installation.getDatabasePassword());
+    argsBuilder.append("sonar.host.url", installation.getServerUrl());
 
     argsBuilder.append("sonar.branch", publisher.getBranch());
     argsBuilder.append("sonar.language", publisher.getLanguage());
@@ -79,6 +131,10 @@ public final class SonarMaven extends Maven {
     return (DescriptorImpl) Hudson.getInstance().getDescriptorOrDie(Maven.class);
   }
 
+  /**
+   * @deprecated since 1.6.1.thales.16, use {@link #executeMaven(AnalysisContext, String, String, SonarPublisher)}
+   */
+  @Deprecated
   public static boolean executeMaven(
       AbstractBuild<?, ?> build,
       Launcher launcher,
@@ -88,6 +144,20 @@ public final class SonarMaven extends Maven {
       SonarInstallation sonarInstallation,
       SonarPublisher sonarPublisher
       ) throws IOException, InterruptedException {
+    return executeMaven(new AnalysisContext(build, launcher, listener, sonarInstallation), mavenName, pom, sonarPublisher);
+  }
+
+  /**
+   * @since 1.6.1.thales.16
+   */
+  public static boolean executeMaven(
+      AnalysisContext context,
+      String mavenName,
+      String pom,
+      SonarPublisher sonarPublisher
+      ) throws IOException, InterruptedException {
+    AbstractBuild<?, ?> build = context.getBuild();
+    SonarInstallation sonarInstallation = context.getInstallation();
     MavenModuleSet mavenModuleProject = sonarPublisher.getMavenProject(build);
     /**
      * MAVEN_OPTS
@@ -124,9 +194,19 @@ public final class SonarMaven extends Maven {
         + (StringUtils.isNotBlank(installationProperties) ? installationProperties : "") + " "
         + (StringUtils.isNotBlank(jobProperties) ? jobProperties : "") + " "
         + (StringUtils.isNotBlank(alternateSettings) ? "-s " + alternateSettings : "");
+    if (mavenModuleProject != null && sonarPublisher.isReuseMavenOutputs()) {
+      // The build just resolved and compiled everything: fail rather than download, and don't run the tests again
+      aditionalProperties += " -o";
+      if (!sonarInstallation.isFourOrHigher()) {
+        aditionalProperties += " -Dsonar.dynamicAnalysis=reuseReports";
+      }
+    }
+    if (usesPrivateRepository && sonarInstallation.isSeedNodeRepository()) {
+      NodeMavenRepository.prepare(context, mavenName, context.getWorkspace().child(".repository"));
+    }
     // Execute Maven
-    pom = build.getWorkspace().child(pom).getRemote(); // SONARPLUGINS-487
-    return new SonarMaven(aditionalProperties, mavenName, pom, jvmOptions, usesPrivateRepository, sonarPublisher)
-        .perform(build, launcher, listener);
+    pom = context.getWorkspace().child(pom).getRemote(); // SONARPLUGINS-487
+    return new SonarMaven(aditionalProperties, mavenName, pom, jvmOptions, usesPrivateRepository, sonarPublisher, context.getPreview())
+        .perform(build, context.getLauncher(), context.getListener());
   }
 }
@@ -0,0 +1,201 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.utils;
+
+import hudson.plugins.sonar.SonarInstallation;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Minimal client of the web services of a Sonar server, used to check its state before launching analyses.
+ * 
+ * @since 1.6.1.thales.16
+ */
+public class SonarServerClient {
+	/**
+	 * Connect and read timeout, in milliseconds.
+	 */
+	public static int TIMEOUT = Integer.getInteger(SonarServerClient.class.getName() + ".timeout", 10000);
+
+	private final String url;
+
+	public SonarServerClient(String serverUrl) {
+		this.url = StringUtils.chomp(StringUtils.defaultIfEmpty(StringUtils.trimToEmpty(serverUrl), MagicNames.DEFAULT_SONAR_URL), "/");
+	}
+
+	public SonarServerClient(SonarInstallation installation) {
+		this(installation.getServerUrl());
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * State of the server when it was polled.
+	 */
+	public static final class ServerStatus {
+		private final String status;
+
+		private final String version;
+
+		private final long latency;
+
+		private final int queueSize;
+
+		public ServerStatus(String status, String version, long latency, int queueSize) {
+			this.status = status;
+			this.version = version;
+			this.latency = latency;
+			this.queueSize = queueSize;
+		}
+
+		/**
+		 * @return status reported by the server, <tt>UP</tt> when it accepts analyses
+		 */
+		public String getStatus() {
+			return status;
+		}
+
+		public String getVersion() {
+			return version;
+		}
+
+		/**
+		 * @return response time of the status request, in milliseconds
+		 */
+		public long getLatency() {
+			return latency;
+		}
+
+		/**
+		 * @return number of analysis reports waiting to be processed by the server, or -1 if the server doesn't tell
+		 */
+		public int getQueueSize() {
+			return queueSize;
+		}
+
+		public boolean isUp() {
+			return "UP".equals(status);
+		}
+
+		@Override
+		public String toString() {
+			return status + " " + version + ", latency " + latency + " ms" + (queueSize < 0 ? "" : ", queue " + queueSize);
+		}
+	}
+
+	/**
+	 * Polls <tt>/api/server/index</tt>, and <tt>/api/ce/queue</tt> on servers processing the analysis reports in the
+	 * background. The queue is unknown on servers that don't grant it to anonymous users.
+	 * 
+	 * @throws IOException if the server can't be reached or answers with an error
+	 */
+	public ServerStatus getStatus() throws IOException {
+		return getStatus(true);
+	}
+
+	/**
+	 * Polls <tt>/api/server/index</tt>, and the queue if asked: whether the server is up and its version only depend
+	 * on the index.
+	 * 
+	 * @param withQueue true to poll the queue of analysis reports too
+	 * @throws IOException if the server can't be reached or answers with an error
+	 */
+	public ServerStatus getStatus(boolean withQueue) throws IOException {
+		long start = System.currentTimeMillis();
+		JSONObject index = parse(get("/api/server/index"));
+		long latency = System.currentTimeMillis() - start;
+		int queueSize = -1;
+		String queue = withQueue ? getIfGranted("/api/ce/queue") : null;
+		if (queue != null) {
+			JSONArray tasks = parse(queue).optJSONArray("tasks");
+			queueSize = tasks == null ? -1 : tasks.size();
+		}
+		return new ServerStatus(index.optString("status"), index.optString("version"), latency, queueSize);
+	}
+
+	/**
+	 * @return body of the response
+	 * @throws IOException if the server can't be reached or answers with an error
+	 */
+	String get(String path) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url + path).openConnection();
+		connection.setConnectTimeout(TIMEOUT);
+		connection.setReadTimeout(TIMEOUT);
+		try {
+			int code = connection.getResponseCode();
+			if (code == HttpURLConnection.HTTP_NOT_FOUND) {
+				throw new FileNotFoundException(url + path);
+			} else if (code == HttpURLConnection.HTTP_UNAUTHORIZED || code == HttpURLConnection.HTTP_FORBIDDEN) {
+				throw new AccessDeniedException(url + path, code);
+			} else if (code != HttpURLConnection.HTTP_OK) {
+				throw new IOException("HTTP " + code + " on " + url + path);
+			}
+			InputStream in = connection.getInputStream();
+			try {
+				return IOUtils.toString(in, "UTF-8");
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * @return body of the response, or null if the web service doesn't exist on this server or requires authentication
+	 */
+	private String getIfGranted(String path) throws IOException {
+		try {
+			return get(path);
+		} catch (FileNotFoundException e) {
+			return null;
+		} catch (AccessDeniedException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Web service refused to anonymous users.
+	 */
+	static final class AccessDeniedException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		AccessDeniedException(String url, int code) {
+			super("HTTP " + code + " on " + url);
+		}
+	}
+
+	private JSONObject parse(String json) throws IOException {
+		try {
+			return JSONObject.fromObject(json);
+		} catch (JSONException e) {
+			throw new IOException("Unexpected answer from " + url + ": " + StringUtils.abbreviate(json, 100));
+		}
+	}
+}
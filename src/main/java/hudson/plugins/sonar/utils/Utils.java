@@ -18,6 +18,7 @@ package hudson.plugins.sonar.utils;
 
 import hudson.EnvVars;
 import hudson.FilePath;
+import hudson.plugins.sonar.AnalysisContext;
 import hudson.plugins.sonar.SonarPublisher;
 import hudson.plugins.sonar.template.SonarPomGenerator;
 import hudson.remoting.VirtualChannel;
@@ -50,6 +51,27 @@ public class Utils {
 	 */
 	public static List<String> getProjectSrcDirsList(String src, final FilePath root, EnvVars env)
 	throws IOException, InterruptedException
+	{
+		return getProjectSrcDirsList(src, root, env, null);
+	}
+
+	/**
+	 * Same as {@link #getProjectSrcDirsList(String, FilePath, EnvVars)}, but uses the environment already computed for
+	 * the analysis and decides locally whether a wildcard pattern is absolute, without a call to the agent per pattern.
+	 * 
+	 * @since 1.6.1.thales.16
+	 */
+	public static List<String> getProjectSrcDirsList(String src, AnalysisContext context)
+	throws IOException, InterruptedException
+	{
+		return getProjectSrcDirsList(src, context.getWorkspace(), context.getEnv(), context.isUnix());
+	}
+
+	/**
+	 * @param unix whether the workspace is on a Unix node, or null to ask the node
+	 */
+	private static List<String> getProjectSrcDirsList(String src, final FilePath root, EnvVars env, Boolean unix)
+	throws IOException, InterruptedException
 	{
 		final List<String> wildcards = new ArrayList<String>();
 		List<String> sourceDirs = new ArrayList<String>();
@@ -65,7 +87,7 @@ public class Utils {
 				}
 				else {
 					//prod00139875: Manage wildcard outside the workspace
-					FilePath absolutePath = getPathFromOutsideWorkspacePattern(trimmedPattern, root.getChannel());
+					FilePath absolutePath = getPathFromOutsideWorkspacePattern(trimmedPattern, root.getChannel(), unix);
 					if (absolutePath == null){
 						wildcards.add(SonarPublisher.expandJenkinsVars(env, trimmedPattern));
 					}
@@ -128,7 +150,7 @@ public class Utils {
 		return sourceDirs;
 	}
 
-	private static FilePath getPathFromOutsideWorkspacePattern(String pattern,VirtualChannel channel){
+	private static FilePath getPathFromOutsideWorkspacePattern(String pattern,VirtualChannel channel, Boolean unix){
 
 		//Algorithm: find the first index of ? or * and check if the path before this index is absolute or not
 		String modifiedPattern = pattern.replace('\\', '/');
@@ -165,6 +187,9 @@ public class Utils {
 
 		pathInPattern = pathInPattern.substring(0,lastSlashIndex+1);
 		FilePath tmpFilePath = new FilePath(channel, pathInPattern);
+		if (unix != null){
+			return isAbsolute(pathInPattern, unix) ? tmpFilePath : null;
+		}
 		try {
 			String absolutePathTmpFilePath = tmpFilePath.absolutize().getRemote();
 			System.out.println(absolutePathTmpFilePath + " try " +pathInPattern);
@@ -190,4 +215,15 @@ public class Utils {
 
 	}
 
+	/**
+	 * @param path path with '/' separators
+	 * @return true if the path is absolute on a node of the given kind
+	 */
+	static boolean isAbsolute(String path, boolean unix){
+		if (unix){
+			return path.startsWith("/");
+		}
+		return path.startsWith("//") || (path.length() > 2 && Character.isLetter(path.charAt(0)) && path.charAt(1) == ':' && path.charAt(2) == '/');
+	}
+
 }
@@ -0,0 +1,191 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.Util;
+import hudson.plugins.sonar.utils.SonarServerClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class AdmissionControllerTest {
+  private FakeSonarServer server;
+  private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+  private final PrintStream logger = new PrintStream(log, true);
+
+  @Before
+  public void setUp() throws Exception {
+    server = new FakeSonarServer().start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop();
+  }
+
+  @Test
+  public void shouldIncreaseLimitWithCompletedAnalyses() throws Exception {
+    AdmissionController controller = newController(0);
+    assertThat(controller.getLimit(), is(1));
+    // Polling alone doesn't open more slots
+    controller.refresh();
+    controller.refresh();
+    assertThat(controller.getLimit(), is(1));
+    assertThat(controller.getLastStatus().getVersion(), is(FakeSonarServer.VERSION));
+
+    complete(controller);
+    complete(controller);
+    assertThat(controller.getLimit(), is(3));
+
+    // Given up before it ran
+    assertThat(controller.acquire(logger), is(true));
+    controller.release(false);
+    assertThat(controller.getLimit(), is(3));
+  }
+
+  @Test
+  public void shouldHalveLimitWhenServerIsSlow() throws Exception {
+    AdmissionController controller = newController(0);
+    complete(controller);
+    complete(controller);
+    assertThat(controller.getLimit(), is(3));
+
+    server.setLatencyMillis(600);
+    controller.refresh();
+    assertThat(controller.getLimit(), is(1));
+    assertTrue(controller.getLastStatus().getLatency() >= 600);
+  }
+
+  @Test
+  public void shouldHalveLimitWhenQueueIsLong() throws Exception {
+    AdmissionController controller = newController(0);
+    complete(controller);
+    assertThat(controller.getLimit(), is(2));
+
+    server.setResponse("/api/ce/queue", "{\"tasks\":[{},{},{}]}");
+    controller.refresh();
+    assertThat(controller.getLimit(), is(1));
+    assertThat(controller.getLastStatus().getQueueSize(), is(3));
+  }
+
+  @Test
+  public void shouldIgnoreQueueRequiringAuthentication() {
+    AdmissionController controller = newController(0);
+    server.setStatus("/api/ce/queue", 401);
+    controller.refresh();
+    assertThat(controller.getLimit(), is(1));
+    assertThat(controller.getLastStatus().getQueueSize(), is(-1));
+
+    server.setStatus("/api/ce/queue", 403);
+    controller.refresh();
+    assertThat(controller.getLimit(), is(1));
+  }
+
+  @Test
+  public void shouldGiveUpWhenServerStaysDown() throws Exception {
+    AdmissionController controller = new AdmissionController(new SonarServerClient(server.getUrl()), 0, 300, 2, 3, 200);
+    server.stop();
+    long start = System.currentTimeMillis();
+    assertThat(controller.acquire(logger), is(false));
+    assertTrue(System.currentTimeMillis() - start >= 200);
+    assertThat(controller.getRunning(), is(0));
+    // The build tells how long it may wait
+    assertTrue(log.toString(), log.toString().contains("not available"));
+    assertTrue(log.toString(), log.toString().contains("waiting up to " + Util.getTimeSpanString(200)));
+  }
+
+  @Test
+  public void shouldCloseWhenServerIsDown() throws Exception {
+    final AdmissionController controller = newController(0);
+    server.stop();
+    controller.refresh();
+    assertThat(controller.getLimit(), is(0));
+    assertThat(controller.getLastStatus(), nullValue());
+
+    Thread waiting = new Thread() {
+      @Override
+      public void run() {
+        try {
+          controller.acquire(logger);
+        } catch (InterruptedException e) {
+          // Expected
+        }
+      }
+    };
+    waiting.start();
+    waiting.join(200);
+    assertTrue(waiting.isAlive());
+    waiting.interrupt();
+    waiting.join();
+    assertThat(controller.getRunning(), is(0));
+  }
+
+  @Test
+  public void shouldCacheStatus() {
+    AdmissionController controller = newController(60000);
+    controller.refresh();
+    int requests = server.getRequestCount();
+    controller.refresh();
+    assertThat(server.getRequestCount(), is(requests));
+    assertThat(controller.getLimit(), is(1));
+  }
+
+  @Test
+  public void shouldHoldLaunchesAboveLimit() throws Exception {
+    final AdmissionController controller = newController(60000);
+    complete(controller);
+    assertThat(controller.getLimit(), is(2));
+    controller.acquire(logger);
+    controller.acquire(logger);
+    assertThat(controller.getRunning(), is(2));
+
+    Thread third = new Thread() {
+      @Override
+      public void run() {
+        try {
+          controller.acquire(logger);
+        } catch (InterruptedException e) {
+          // Test failed
+        }
+      }
+    };
+    third.start();
+    third.join(200);
+    assertTrue(third.isAlive());
+
+    controller.release(true);
+    third.join();
+    assertThat(controller.getRunning(), is(2));
+  }
+
+  private void complete(AdmissionController controller) throws InterruptedException {
+    controller.acquire(logger);
+    controller.release(true);
+  }
+
+  private AdmissionController newController(long statusTtl) {
+    return new AdmissionController(new SonarServerClient(server.getUrl()), statusTtl, 300, 2, 3, 60000);
+  }
+}
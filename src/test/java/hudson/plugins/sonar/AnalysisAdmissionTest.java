@@ -0,0 +1,126 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisAdmissionTest {
+  private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+  private final PrintStream logger = new PrintStream(log, true);
+
+  @Test
+  public void shouldAdmitByPriorityThenShortestJob() throws Exception {
+    AnalysisAdmission admission = new AnalysisAdmission(1);
+    AnalysisAdmission.Ticket first = admission.acquire("first", AnalysisPriority.OTHER, 1000, logger);
+    List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+    Thread timerLong = start(admission, "timer-long", AnalysisPriority.TIMER, 5000, order);
+    waitForWaiting(admission, 1);
+    Thread timerShort = start(admission, "timer-short", AnalysisPriority.TIMER, 1000, order);
+    waitForWaiting(admission, 2);
+    Thread user = start(admission, "user", AnalysisPriority.USER, 10000, order);
+    waitForWaiting(admission, 3);
+
+    admission.release(first);
+    timerLong.join();
+    timerShort.join();
+    user.join();
+    assertThat(order, is(Arrays.asList("user", "timer-short", "timer-long")));
+    assertThat(admission.getRunningCount(), is(0));
+    assertTrue(log.toString().contains("Waiting for an analysis slot (USER priority): position 1 of 3"));
+  }
+
+  @Test
+  public void shouldNotLimitByDefault() throws Exception {
+    AnalysisAdmission admission = new AnalysisAdmission(0);
+    for (int i = 0; i < 10; i++) {
+      admission.acquire("job" + i, AnalysisPriority.OTHER, 1000, logger);
+    }
+    assertThat(admission.getRunningCount(), is(10));
+    assertThat(admission.getWaitingCount(), is(0));
+    assertThat(admission.getEstimatedWait(0, System.currentTimeMillis()), is(0L));
+  }
+
+  @Test
+  public void shouldAdmitWaitingAnalysesWhenSlotsAreAdded() throws Exception {
+    AnalysisAdmission admission = new AnalysisAdmission(1);
+    admission.acquire("running", AnalysisPriority.OTHER, 1000, logger);
+    List<String> order = Collections.synchronizedList(new ArrayList<String>());
+    Thread waiting = start(admission, "waiting", AnalysisPriority.USER, 1000, order);
+    waitForWaiting(admission, 1);
+
+    admission.setSlots(2);
+    waiting.join();
+    assertThat(order, is(Arrays.asList("waiting")));
+  }
+
+  @Test
+  public void shouldEstimateWaitFromRunningAndQueuedAnalyses() throws Exception {
+    AnalysisAdmission admission = new AnalysisAdmission(2);
+    admission.acquire("running", AnalysisPriority.OTHER, 60000, logger);
+    long now = System.currentTimeMillis();
+    long wait = admission.getEstimatedWait(0, now);
+    assertTrue(wait > 29000 && wait <= 30000);
+  }
+
+  @Test
+  public void shouldLeaveQueueWhenInterrupted() throws Exception {
+    AnalysisAdmission admission = new AnalysisAdmission(1);
+    admission.acquire("running", AnalysisPriority.OTHER, 1000, logger);
+    Thread waiting = start(admission, "waiting", AnalysisPriority.USER, 1000, new ArrayList<String>());
+    waitForWaiting(admission, 1);
+
+    waiting.interrupt();
+    waiting.join();
+    assertThat(admission.getWaitingCount(), is(0));
+    assertThat(admission.getRunningCount(), is(1));
+  }
+
+  private Thread start(final AnalysisAdmission admission, final String job, final AnalysisPriority priority, final long estimate,
+      final List<String> order) {
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          AnalysisAdmission.Ticket ticket = admission.acquire(job, priority, estimate, logger);
+          order.add(job);
+          admission.release(ticket);
+        } catch (InterruptedException e) {
+          // Left the queue
+        }
+      }
+    };
+    thread.start();
+    return thread;
+  }
+
+  private static void waitForWaiting(AnalysisAdmission admission, int count) throws InterruptedException {
+    while (admission.getWaitingCount() < count) {
+      Thread.sleep(10);
+    }
+  }
+}
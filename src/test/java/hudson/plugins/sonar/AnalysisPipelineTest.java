@@ -0,0 +1,205 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.plugins.sonar.AnalysisPipeline.Stage;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AnalysisPipelineTest {
+  private ExecutorService executor;
+  private AnalysisPipeline pipeline;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newCachedThreadPool();
+    pipeline = new AnalysisPipeline(null, executor);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test(timeout = 10000)
+  public void independentStagesRunConcurrently() throws Exception {
+    final CountDownLatch bothStarted = new CountDownLatch(2);
+    Stage<String> first = pipeline.add(new Stage<String>("first") {
+      @Override
+      protected String run(AnalysisContext context) throws InterruptedException {
+        bothStarted.countDown();
+        bothStarted.await();
+        return "first";
+      }
+    });
+    Stage<String> second = pipeline.add(new Stage<String>("second") {
+      @Override
+      protected String run(AnalysisContext context) throws InterruptedException {
+        bothStarted.countDown();
+        bothStarted.await();
+        return "second";
+      }
+    });
+    pipeline.start();
+    assertEquals("first", pipeline.get(first));
+    assertEquals("second", pipeline.get(second));
+  }
+
+  @Test(timeout = 10000)
+  public void stageRunsAfterItsDependencies() throws Exception {
+    final Stage<Integer> dependency = pipeline.add(new Stage<Integer>("dependency") {
+      @Override
+      protected Integer run(AnalysisContext context) throws InterruptedException {
+        Thread.sleep(50);
+        return 20;
+      }
+    });
+    Stage<Integer> dependent = pipeline.add(new Stage<Integer>("dependent", dependency) {
+      @Override
+      protected Integer run(AnalysisContext context) throws IOException, InterruptedException {
+        return pipeline.get(dependency) + 22;
+      }
+    });
+    pipeline.start();
+    assertEquals(Integer.valueOf(42), pipeline.get(dependent));
+  }
+
+  @Test(timeout = 10000)
+  public void failureIsPropagatedToDependents() throws Exception {
+    Stage<Void> failing = pipeline.add(new Stage<Void>("failing") {
+      @Override
+      protected Void run(AnalysisContext context) throws IOException {
+        throw new IOException("agent gone");
+      }
+    });
+    Stage<Void> dependent = pipeline.add(new Stage<Void>("dependent", failing) {
+      @Override
+      protected Void run(AnalysisContext context) {
+        fail("must not run");
+        return null;
+      }
+    });
+    pipeline.start();
+    try {
+      pipeline.get(dependent);
+      fail();
+    } catch (IOException e) {
+      assertEquals("agent gone", e.getMessage());
+    }
+    pipeline.join();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void dependenciesMustBeAddedFirst() {
+    Stage<Void> missing = new Stage<Void>("missing") {
+      @Override
+      protected Void run(AnalysisContext context) {
+        return null;
+      }
+    };
+    pipeline.add(new Stage<Void>("dependent", missing) {
+      @Override
+      protected Void run(AnalysisContext context) {
+        return null;
+      }
+    });
+  }
+
+  @Test(timeout = 10000)
+  public void joinWaitsForAllStages() throws Exception {
+    final CountDownLatch done = new CountDownLatch(1);
+    pipeline.add(new Stage<Void>("slow") {
+      @Override
+      protected Void run(AnalysisContext context) throws InterruptedException {
+        Thread.sleep(100);
+        done.countDown();
+        return null;
+      }
+    });
+    pipeline.start();
+    pipeline.join();
+    assertTrue(done.await(0, TimeUnit.MILLISECONDS));
+  }
+
+  @Test(timeout = 10000)
+  public void cancelInterruptsRunningStages() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    Stage<Void> slow = pipeline.add(new Stage<Void>("slow") {
+      @Override
+      protected Void run(AnalysisContext context) throws InterruptedException {
+        started.countDown();
+        try {
+          Thread.sleep(60000);
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+          throw e;
+        }
+        return null;
+      }
+    });
+    pipeline.add(new Stage<Void>("dependent", slow) {
+      @Override
+      protected Void run(AnalysisContext context) {
+        fail("must not run");
+        return null;
+      }
+    });
+    pipeline.start();
+    started.await();
+    pipeline.cancel();
+    pipeline.join();
+    // The running stage is over once join returns
+    assertTrue(interrupted.await(0, TimeUnit.MILLISECONDS));
+  }
+
+  @Test(timeout = 10000)
+  public void interruptedJoinCancelsStages() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    pipeline.add(new Stage<Void>("slow") {
+      @Override
+      protected Void run(AnalysisContext context) throws InterruptedException {
+        started.countDown();
+        try {
+          Thread.sleep(60000);
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+          throw e;
+        }
+        return null;
+      }
+    });
+    pipeline.start();
+    started.await();
+    Thread.currentThread().interrupt();
+    pipeline.join();
+    assertTrue(Thread.interrupted());
+    assertTrue(interrupted.await(0, TimeUnit.MILLISECONDS));
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.XmlFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class AnalysisTimestampsTest {
+  private File dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = File.createTempFile("analysis-timestamps", "");
+    dir.delete();
+    dir.mkdirs();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(dir);
+  }
+
+  @Test
+  public void shouldPersistLastAnalysisPerJob() {
+    File file = new File(dir, AnalysisTimestamps.FILE_NAME);
+    AnalysisTimestamps timestamps = new AnalysisTimestamps(file);
+    assertThat(timestamps.getLastAnalysis("folder/job"), nullValue());
+
+    timestamps.record("folder/job", 1000L);
+    timestamps.record("folder/job", 2000L);
+    timestamps.record("other", 3000L);
+
+    AnalysisTimestamps reloaded = new AnalysisTimestamps(file);
+    assertThat(reloaded.getLastAnalysis("folder/job"), is(2000L));
+    assertThat(reloaded.getLastAnalysis("other"), is(3000L));
+  }
+
+  @Test
+  public void shouldEstimateDurationFromPreviousAnalyses() {
+    File file = new File(dir, AnalysisTimestamps.FILE_NAME);
+    AnalysisTimestamps timestamps = new AnalysisTimestamps(file);
+    assertThat(timestamps.getEstimatedDuration("job"), nullValue());
+
+    timestamps.record("job", 1000L, 10000L);
+    assertThat(timestamps.getEstimatedDuration("job"), is(10000L));
+    timestamps.record("job", 2000L, 20000L);
+    assertThat(timestamps.getEstimatedDuration("job"), is(13000L));
+    // Duration unknown
+    timestamps.record("job", 3000L);
+
+    AnalysisTimestamps reloaded = new AnalysisTimestamps(file);
+    assertThat(reloaded.getEstimatedDuration("job"), is(13000L));
+    assertThat(reloaded.getLastAnalysis("job"), is(3000L));
+  }
+
+  @Test
+  public void shouldPersistDashboardUrlPerJob() {
+    File file = new File(dir, AnalysisTimestamps.FILE_NAME);
+    AnalysisTimestamps timestamps = new AnalysisTimestamps(file);
+    assertThat(timestamps.getDashboardUrl("job"), nullValue());
+
+    timestamps.recordDashboardUrl("job", "http://localhost:9000/project/index/test:test");
+    timestamps.record("job", 1000L);
+
+    AnalysisTimestamps reloaded = new AnalysisTimestamps(file);
+    assertThat(reloaded.getDashboardUrl("job"), is("http://localhost:9000/project/index/test:test"));
+    assertThat(reloaded.getDashboardUrl("other"), nullValue());
+  }
+
+  @Test
+  public void shouldMigrateTimestampsWithoutDurations() throws IOException {
+    File file = new File(dir, AnalysisTimestamps.FILE_NAME);
+    Map<String, Long> lastAnalyses = new TreeMap<String, Long>();
+    lastAnalyses.put("job", 1000L);
+    new XmlFile(file).write(lastAnalyses);
+
+    AnalysisTimestamps timestamps = new AnalysisTimestamps(file);
+    assertThat(timestamps.getLastAnalysis("job"), is(1000L));
+    assertThat(timestamps.getEstimatedDuration("job"), nullValue());
+
+    // Saved in the current format
+    assertThat(new XmlFile(file).read() instanceof AnalysisTimestamps, is(true));
+    assertThat(new AnalysisTimestamps(file).getLastAnalysis("job"), is(1000L));
+  }
+}
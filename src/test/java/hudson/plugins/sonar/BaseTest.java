@@ -15,12 +15,18 @@
  */
 package hudson.plugins.sonar;
 
+import hudson.Launcher;
 import hudson.maven.MavenModuleSet;
 import hudson.model.*;
 import hudson.plugins.sonar.model.TriggersConfig;
+import hudson.plugins.sonar.utils.MagicNames;
 import hudson.triggers.SCMTrigger;
 import hudson.triggers.TimerTrigger;
 import org.jvnet.hudson.test.MockBuilder;
+import org.jvnet.hudson.test.TestBuilder;
+
+import java.util.Calendar;
+import java.util.List;
 
 /**
  * @author Evgeny Mandrikov
@@ -66,6 +72,42 @@ public class BaseTest extends SonarTestCase {
     assertSonarExecution(build, "-f \"" + getPom(build, pomName) + "\" -Dmaven.repo.local=" + repo + " -s settings.xml");
   }
 
+  /**
+   * Maven Project analyzed offline, on the outputs of the build.
+   *
+   * @throws Exception if something is wrong
+   */
+  public void testMavenProjectReusingOutputs() throws Exception {
+    configureDefaultMaven();
+    configureDefaultSonar();
+    MavenModuleSet project = setupMavenProject();
+    project.getPublishersList().replace(new SonarPublisher(SONAR_INSTALLATION_NAME, null, null, new TriggersConfig(), null, null,
+        null, null, null, SonarPublisher.MAVEN_ANALYSIS_REUSE_OUTPUTS));
+    AbstractBuild build = build(project);
+
+    assertSonarExecution(build, "-o -Dsonar.dynamicAnalysis=reuseReports");
+  }
+
+  /**
+   * Maven Project with the sonar goal added to the build: Maven runs once.
+   *
+   * @throws Exception if something is wrong
+   */
+  public void testMavenProjectInline() throws Exception {
+    configureDefaultMaven();
+    configureDefaultSonar();
+    MavenModuleSet project = setupMavenProject();
+    project.getPublishersList().replace(new SonarPublisher(SONAR_INSTALLATION_NAME, null, null, new TriggersConfig(), null, null,
+        null, null, null, SonarPublisher.MAVEN_ANALYSIS_INLINE));
+    AbstractBuild build = build(project);
+
+    assertLogContains("Sonar analysis added to the Maven execution", build);
+    assertLogContains("clean install sonar:sonar", build);
+    assertLogDoesntContains("-e -B sonar:sonar", build);
+    assertNotNull(build.getAction(BuildSonarAction.class));
+    assertNull(build.getAction(SonarMavenArgumentInterceptor.class));
+  }
+
   /**
    * Free Style Project.
    * <ul>
@@ -90,6 +132,45 @@ public class BaseTest extends SonarTestCase {
     assertTrue(build.getWorkspace().child(pomName).exists());
   }
 
+  /**
+   * Dashboard URL is resolved once, at analysis time, and then read from the build and the job index.
+   *
+   * @throws Exception if something is wrong
+   */
+  public void testDashboardUrl() throws Exception {
+    configureDefaultMaven();
+    configureDefaultSonar();
+    FreeStyleProject project = setupFreeStyleProject();
+    SonarPublisher publisher = project.getPublishersList().get(SonarPublisher.class);
+    String url = MagicNames.DEFAULT_SONAR_URL + "/project/index/test:test";
+    assertEquals(url, publisher.getSonarUrl(project));
+
+    AbstractBuild build = build(project);
+
+    assertEquals(url, build.getAction(BuildSonarAction.class).getUrl());
+    assertEquals(url, publisher.getSonarUrl(project));
+
+    // Builds without analysis don't hide the last one
+    publisher.getTriggers().setUserBuilds(false);
+    AbstractBuild skipped = build(project, new Cause.UserCause(), null);
+    assertNull(skipped.getAction(BuildSonarAction.class));
+    assertEquals(url, publisher.getSonarUrl(project));
+  }
+
+  /**
+   * Failed analyses don't get the dashboard badge.
+   *
+   * @throws Exception if something is wrong
+   */
+  public void testNoDashboardUrlOnFailure() throws Exception {
+    configureDefaultSonar();
+    FreeStyleProject project = createFreeStyleProject("RunnerProject");
+    project.getPublishersList().add(newSonarPublisherForRunner("missing/**/src"));
+    useStubRunner();
+    AbstractBuild build = build(project, Result.FAILURE);
+    assertNull(build.getAction(BuildSonarAction.class));
+  }
+
   /**
    * SONARPLUGINS-153, SONARPLUGINS-216: Triggers
    * SONARPLUGINS-378
@@ -147,6 +228,85 @@ public class BaseTest extends SonarTestCase {
     assertSonarExecution(build);
   }
 
+  /**
+   * Only the newest of several pending builds is analyzed.
+   *
+   * @throws Exception if something wrong
+   */
+  public void testCoalescedTriggers() throws Exception {
+    configureDefaultMaven();
+    configureDefaultSonar();
+    final FreeStyleProject project = setupFreeStyleProject();
+    project.getPublishersList().get(SonarPublisher.class).getTriggers().setCoalesce(true);
+    final Cause[] queuedCause = { new Cause.RemoteCause("", "") };
+    project.getBuildersList().add(new TestBuilder() {
+      @Override
+      public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) {
+        // A newer build is queued while this one runs
+        project.scheduleBuild(3600, queuedCause[0]);
+        return true;
+      }
+    });
+    AbstractBuild build = build(project);
+    assertNoSonarExecution(build, Messages.SonarPublisher_CoalescedQueued());
+
+    // A newer build the triggers skip doesn't replace the analysis
+    Hudson.getInstance().getQueue().cancel(project);
+    queuedCause[0] = new Cause.UserCause();
+    build = build(project);
+    assertSonarExecution(build);
+
+    Hudson.getInstance().getQueue().cancel(project);
+    project.getBuildersList().clear();
+    build = build(project);
+    assertSonarExecution(build);
+  }
+
+  /**
+   * Analysis of a build run outside the analysis window, by a later build.
+   *
+   * @throws Exception if something wrong
+   */
+  public void testDeferredAnalysis() throws Exception {
+    configureDefaultMaven();
+    configureDefaultSonar();
+    FreeStyleProject project = setupFreeStyleProject();
+    TriggersConfig triggers = project.getPublishersList().get(SonarPublisher.class).getTriggers();
+    int closedHour = (Calendar.getInstance().get(Calendar.HOUR_OF_DAY) + 12) % 24;
+    triggers.setAnalysisWindow("* " + closedHour + " * * *");
+    AbstractBuild build = build(project);
+    assertNoSonarExecution(build, Messages.SonarPublisher_Deferred(triggers.getAnalysisWindow()));
+    List<DeferredAnalyses.Entry> entries = DeferredAnalyses.get().getEntries();
+    assertEquals(1, entries.size());
+    assertEquals(build.getNumber(), entries.get(0).getBuildNumber());
+
+    // Window opens
+    triggers.setAnalysisWindow(null);
+    DeferredAnalyses.get().drain(Calendar.getInstance());
+    waitUntilNoActivity();
+    AbstractBuild deferred = project.getLastBuild();
+    assertEquals(build.getNumber(), deferred.getCause(DeferredAnalysisCause.class).getBuildNumber());
+    assertSonarExecution(deferred);
+    assertTrue(DeferredAnalyses.get().getEntries().isEmpty());
+  }
+
+  /**
+   * No analysis launched against a probed server which is down.
+   *
+   * @throws Exception if something wrong
+   */
+  public void testServerDown() throws Exception {
+    configureDefaultMaven();
+    FakeSonarServer server = new FakeSonarServer().start();
+    String url = server.getUrl();
+    server.stop();
+    configureSonar(new SonarInstallation(SONAR_INSTALLATION_NAME, false, url, null, null, null, null, null, null, null, null, null, false,
+        false, false, true));
+    FreeStyleProject project = setupFreeStyleProject();
+    AbstractBuild build = build(project, Result.FAILURE);
+    assertNoSonarExecution(build, "Sonar server " + url + " is not available");
+  }
+
   protected void setBuildResult(Project project, Result result) throws Exception {
     project.getBuildersList().clear();
     project.getBuildersList().add(new MockBuilder(result));
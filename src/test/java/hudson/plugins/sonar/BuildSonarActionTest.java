@@ -18,6 +18,7 @@ package hudson.plugins.sonar;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
@@ -42,5 +43,12 @@ public class BuildSonarActionTest {
     assertThat(action.getDisplayName(), notNullValue());
     assertThat(action.getIcon(), notNullValue());
     assertThat(action.getTooltip(), notNullValue());
+    assertThat(action.getUrl(), nullValue());
+  }
+
+  @Test
+  public void url() {
+    assertThat(new BuildSonarAction("http://localhost:9000/project/index/test:test").getUrl(),
+        is("http://localhost:9000/project/index/test:test"));
   }
 }
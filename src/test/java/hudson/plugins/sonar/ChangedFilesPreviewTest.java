@@ -0,0 +1,72 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.EnvVars;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ChangedFilesPreviewTest {
+  private final ChangedFilesPreview preview = new ChangedFilesPreview("feature", Arrays.asList(
+      "core/src/main/java/org/Foo.java",
+      "core/src/main/java/org/Bar.java",
+      "web/pom.xml"));
+
+  @Test
+  public void shouldIgnoreRemotePrefixOfMainline() {
+    assertThat(ChangedFilesPreview.isMainline("master", "master"), is(true));
+    assertThat(ChangedFilesPreview.isMainline("origin/master", "master"), is(true));
+    assertThat(ChangedFilesPreview.isMainline("refs/heads/master", "master"), is(true));
+    assertThat(ChangedFilesPreview.isMainline("origin/feature", "master"), is(false));
+    assertThat(ChangedFilesPreview.isMainline("master-fix", "master"), is(false));
+  }
+
+  @Test
+  public void shouldPreferMultiBranchVariable() {
+    EnvVars env = new EnvVars("GIT_BRANCH", "origin/feature", "BRANCH_NAME", "feature");
+    assertThat(ChangedFilesPreview.getBranch(env), is("feature"));
+    assertThat(ChangedFilesPreview.getBranch(new EnvVars()), is(nullValue()));
+  }
+
+  @Test
+  public void shouldKeepChangedSourceDirectories() {
+    assertThat(preview.getSourceDirs(Arrays.asList("core/src/main/java", "web/src/main/java", "./core/src/main/java/")),
+        is(Arrays.asList("core/src/main/java", "./core/src/main/java/")));
+    assertThat(preview.getSourceDirs(Collections.singletonList(".")), is(Collections.singletonList(".")));
+  }
+
+  @Test
+  public void shouldIncludeChangedFilesRelativeToSourceDirectories() {
+    Map<String, String> properties = preview.getProperties(Arrays.asList("core/src/main/java"), true);
+    assertThat(properties.get("sonar.analysis.mode"), is("preview"));
+    assertThat(properties.get("sonar.inclusions"), is("**/org/Foo.java,**/org/Bar.java"));
+  }
+
+  @Test
+  public void shouldIncludeChangedFilesByNameWithoutSourceDirectories() {
+    Map<String, String> properties = preview.getProperties(null, false);
+    assertThat(properties.get("sonar.dryRun"), is("true"));
+    assertThat(properties.get("sonar.inclusions"), is("**/Foo.java,**/Bar.java,**/pom.xml"));
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for a Sonar server, serving the endpoints used by the plugin to check the server and the bootstrap
+ * endpoints of sonar-runner. It can't run a real analysis: sonar-runner fails to download the batch from it, use
+ * {@link SonarTestCase#useStubRunner()} to analyze, {@link SonarRunnerStub} sends the bootstrap requests.
+ * Every response can be delayed and a share of the requests can fail, to simulate a busy server.
+ */
+public class FakeSonarServer {
+  public static final String VERSION = "4.5.1";
+
+  private final Map<String, String> responses = new HashMap<String, String>();
+  private final Map<String, Integer> statuses = new HashMap<String, Integer>();
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger errors = new AtomicInteger();
+  private final Random random = new Random(42);
+
+  private HttpServer server;
+  private ExecutorService executor;
+  private volatile long latencyMillis;
+  private volatile double errorRate;
+  private volatile int errorStatus = 500;
+
+  public FakeSonarServer() {
+    responses.put("/api/server/version", VERSION);
+    responses.put("/api/server/index", "{\"id\":\"fake\",\"version\":\"" + VERSION + "\",\"status\":\"UP\"}");
+    responses.put("/batch_bootstrap/index", "sonar-batch-" + VERSION + ".jar|fake");
+    responses.put("/batch_bootstrap/properties", "[]");
+  }
+
+  public FakeSonarServer start() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    executor = Executors.newCachedThreadPool();
+    server.setExecutor(executor);
+    server.createContext("/", new HttpHandler() {
+      public void handle(HttpExchange exchange) throws IOException {
+        serve(exchange);
+      }
+    });
+    server.start();
+    return this;
+  }
+
+  public void stop() {
+    if (server != null) {
+      server.stop(0);
+      executor.shutdownNow();
+      server = null;
+    }
+  }
+
+  /**
+   * @return URL to use as Sonar server URL, without trailing slash
+   */
+  public String getUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  /**
+   * Overrides or adds the body served for the given path (query string excluded).
+   */
+  public void setResponse(String path, String body) {
+    synchronized (responses) {
+      responses.put(path, body);
+    }
+  }
+
+  /**
+   * Answers the given path (query string excluded) with an error status, such as 401 for a web service that requires
+   * authentication.
+   */
+  public void setStatus(String path, int status) {
+    synchronized (responses) {
+      statuses.put(path, status);
+    }
+  }
+
+  public void setLatencyMillis(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  /**
+   * @param errorRate share of requests, between 0 and 1, answered with the error status
+   */
+  public void setErrorRate(double errorRate) {
+    this.errorRate = errorRate;
+  }
+
+  public void setErrorStatus(int errorStatus) {
+    this.errorStatus = errorStatus;
+  }
+
+  public int getRequestCount() {
+    return requests.get();
+  }
+
+  public int getErrorCount() {
+    return errors.get();
+  }
+
+  private void serve(HttpExchange exchange) throws IOException {
+    try {
+      requests.incrementAndGet();
+      if (latencyMillis > 0) {
+        Thread.sleep(latencyMillis);
+      }
+      String path = exchange.getRequestURI().getPath();
+      String body;
+      Integer status;
+      synchronized (responses) {
+        body = responses.get(path);
+        status = statuses.get(path);
+      }
+      if (isError()) {
+        errors.incrementAndGet();
+        reply(exchange, errorStatus, "Injected error");
+      } else if (status != null) {
+        reply(exchange, status, "Status " + status);
+      } else if (body == null) {
+        reply(exchange, 404, "Not found: " + path);
+      } else {
+        reply(exchange, 200, body);
+      }
+    } catch (InterruptedException e) {
+      reply(exchange, 503, "Interrupted");
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private boolean isError() {
+    if (errorRate <= 0) {
+      return false;
+    }
+    synchronized (random) {
+      return random.nextDouble() < errorRate;
+    }
+  }
+
+  private static void reply(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes("UTF-8");
+    exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+    if (bytes.length > 0) {
+      OutputStream out = exchange.getResponseBody();
+      try {
+        out.write(bytes);
+      } finally {
+        out.close();
+      }
+    }
+  }
+}
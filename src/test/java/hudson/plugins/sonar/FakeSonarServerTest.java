@@ -0,0 +1,75 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class FakeSonarServerTest {
+  private FakeSonarServer server;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new FakeSonarServer().start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop();
+  }
+
+  @Test
+  public void shouldServeVersion() throws Exception {
+    HttpURLConnection connection = open("/api/server/version");
+    assertThat(connection.getResponseCode(), is(200));
+    assertThat(IOUtils.toString(connection.getInputStream()), is(FakeSonarServer.VERSION));
+  }
+
+  @Test
+  public void shouldInjectErrors() throws Exception {
+    server.setErrorRate(1);
+    server.setErrorStatus(503);
+    assertThat(open("/api/server/version").getResponseCode(), is(503));
+    assertThat(server.getErrorCount(), is(1));
+  }
+
+  @Test
+  public void shouldInjectLatency() throws Exception {
+    server.setLatencyMillis(200);
+    long start = System.currentTimeMillis();
+    assertThat(open("/api/server/version").getResponseCode(), is(200));
+    assertTrue(System.currentTimeMillis() - start >= 200);
+  }
+
+  @Test
+  public void shouldAnswerNotFound() throws Exception {
+    assertThat(open("/unknown").getResponseCode(), is(404));
+    assertThat(server.getRequestCount(), is(1));
+  }
+
+  private HttpURLConnection open(String path) throws Exception {
+    return (HttpURLConnection) new URL(server.getUrl() + path).openConnection();
+  }
+}
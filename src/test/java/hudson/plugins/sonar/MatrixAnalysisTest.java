@@ -0,0 +1,112 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.Launcher;
+import hudson.matrix.AxisList;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixProject;
+import hudson.matrix.MatrixRun;
+import hudson.matrix.TextAxis;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.Result;
+import hudson.plugins.sonar.model.BuildWay;
+import hudson.plugins.sonar.model.LightProjectConfig;
+import hudson.plugins.sonar.model.TriggersConfig;
+import org.jvnet.hudson.test.SingleFileSCM;
+import org.jvnet.hudson.test.TestBuilder;
+
+import java.io.IOException;
+
+/**
+ * Analysis of matrix projects once per build, with the stub runner.
+ */
+public class MatrixAnalysisTest extends SonarTestCase {
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    useStubRunner();
+  }
+
+  public void testMatrixAnalyzedOnCombination() throws Exception {
+    configureDefaultSonar();
+    MatrixProject project = newMatrixProject(SonarPublisher.MATRIX_ANALYSIS_COMBINATION, "axis=b");
+    MatrixBuild build = (MatrixBuild) build(project, Result.SUCCESS);
+
+    assertEquals(3, build.getExactRuns().size());
+    for (MatrixRun run : build.getExactRuns()) {
+      if ("b".equals(run.getParent().getCombination().get("axis"))) {
+        assertLogContains("[SonarRunnerStub] EXECUTION SUCCESS", run);
+      } else {
+        assertLogContains(Messages.SonarPublisher_MatrixCombination("axis=b"), run);
+        assertLogDoesntContains("[SonarRunnerStub]", run);
+      }
+      // Every combination links to the analysis
+      assertNotNull(run.getAction(BuildSonarAction.class));
+    }
+    assertNotNull(build.getAction(BuildSonarAction.class));
+  }
+
+  public void testMatrixAnalyzedOnParent() throws Exception {
+    configureDefaultSonar();
+    MatrixProject project = newMatrixProject(SonarPublisher.MATRIX_ANALYSIS_PARENT, null);
+    MatrixBuild build = (MatrixBuild) build(project, Result.SUCCESS);
+
+    assertLogContains("[SonarRunnerStub] EXECUTION SUCCESS", build);
+    assertNotNull(build.getAction(BuildSonarAction.class));
+    for (MatrixRun run : build.getExactRuns()) {
+      assertLogContains(Messages.SonarPublisher_MatrixParent(), run);
+      assertLogDoesntContains("[SonarRunnerStub]", run);
+      assertNotNull(run.getAction(BuildSonarAction.class));
+    }
+  }
+
+  public void testMatrixParentAnalyzesCombinationWorkspace() throws Exception {
+    configureDefaultSonar();
+    MatrixProject project = createMatrixProject("MatrixProject");
+    project.setAxes(new AxisList(new TextAxis("axis", "a", "b")));
+    project.setScm(new SingleFileSCM("src/Foo.java", "class Foo {}"));
+    // Only the combinations have binaries
+    project.getBuildersList().add(new TestBuilder() {
+      @Override
+      public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+        build.getWorkspace().child("classes").mkdirs();
+        return true;
+      }
+    });
+    LightProjectConfig config = new LightProjectConfig(
+        "test", "test", "Test", "0.1-SNAPSHOT", "Test project", null, null,
+        "src", "UTF-8", "classes", null, null,
+        new BuildWay(LightProjectConfig.JAVA_RUNNER, ""));
+    project.getPublishersList().add(new SonarPublisher(SONAR_INSTALLATION_NAME, null, null, new TriggersConfig(), null, null, null, null,
+        config, null, false, SonarPublisher.MATRIX_ANALYSIS_PARENT, "axis=b"));
+    MatrixBuild build = (MatrixBuild) build(project, Result.SUCCESS);
+
+    assertLogContains("Analyzing the workspace of combination axis=b", build);
+    assertLogContains("[SonarRunnerStub] sonar.binaries=classes", build);
+    assertLogContains("[SonarRunnerStub] EXECUTION SUCCESS", build);
+  }
+
+  private MatrixProject newMatrixProject(String matrixAnalysisMode, String matrixCombination) throws Exception {
+    MatrixProject project = createMatrixProject("MatrixProject");
+    project.setAxes(new AxisList(new TextAxis("axis", "a", "b", "c")));
+    project.setScm(new SingleFileSCM("src/Foo.java", "class Foo {}"));
+    project.getPublishersList().add(new SonarPublisher(SONAR_INSTALLATION_NAME, null, null, new TriggersConfig(), null, null, null, null,
+        newSonarPublisherForRunner("src").getLightProject(), null, false, matrixAnalysisMode, matrixCombination));
+    return project;
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.plugins.sonar.MavenModulesRunnerProperties.Module;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MavenModulesRunnerPropertiesTest {
+  private static Module module(String key, String name, String path, boolean sources, boolean binaries) {
+    Module module = new Module(key, name, "1.0-SNAPSHOT", path);
+    module.hasSources = sources;
+    module.hasBinaries = binaries;
+    return module;
+  }
+
+  @Test
+  public void shouldDeclareModulesWithSources() {
+    Module root = module("org.example:parent", "Parent", "", false, false);
+    Module core = module("org.example:core", "Core", "core", true, true);
+    Module docs = module("org.example:docs", "Docs", "docs", false, false);
+    Module web = module("org.example:web", "Web", "apps\\web", true, false);
+
+    assertThat(MavenModulesRunnerProperties.render(root, Arrays.asList(core, docs, web), "stable", null),
+        is("sonar.projectKey=org.example:parent\n"
+          + "sonar.projectName=Parent\n"
+          + "sonar.projectVersion=1.0-SNAPSHOT\n"
+          + "sonar.branch=stable\n"
+          + "sonar.modules=org_example_core,org_example_web\n"
+          + "org_example_core.sonar.projectKey=org.example:core\n"
+          + "org_example_core.sonar.projectName=Core\n"
+          + "org_example_core.sonar.projectBaseDir=core\n"
+          + "org_example_core.sonar.sources=src/main/java\n"
+          + "org_example_core.sonar.binaries=target/classes\n"
+          + "org_example_web.sonar.projectKey=org.example:web\n"
+          + "org_example_web.sonar.projectName=Web\n"
+          + "org_example_web.sonar.projectBaseDir=apps/web\n"
+          + "org_example_web.sonar.sources=src/main/java\n"));
+  }
+
+  @Test
+  public void shouldPassOnMavenProperties() {
+    ByteArrayOutputStream log = new ByteArrayOutputStream();
+    PrintStream logger = new PrintStream(log, true);
+
+    assertThat(MavenModulesRunnerProperties.toRunnerProperties(
+        "-Dsonar.profile=Strict -Pci \"-Dsonar.exclusions=**/gen/**, **/*Test.java\" -D sonar.skipDesign=true -Dsonar.verbose", logger),
+        is("sonar.profile=Strict\n"
+          + "sonar.exclusions=**/gen/**, **/*Test.java\n"
+          + "sonar.skipDesign=true\n"
+          + "sonar.verbose=true\n"));
+    assertThat(log.toString().contains("Maven argument -Pci ignored"), is(true));
+  }
+
+  @Test
+  public void shouldAnalyzeSingleModuleInSubdirectory() {
+    Module root = module("org.example:app", "App", "app", true, true);
+
+    assertThat(MavenModulesRunnerProperties.render(root, Arrays.<Module> asList(), null, "java"),
+        is("sonar.projectKey=org.example:app\n"
+          + "sonar.projectName=App\n"
+          + "sonar.projectVersion=1.0-SNAPSHOT\n"
+          + "sonar.language=java\n"
+          + "sonar.sources=app/src/main/java\n"
+          + "sonar.binaries=app/target/classes\n"));
+  }
+
+  @Test
+  public void shouldMakeModuleIdsUnique() {
+    Module root = module("org.example:parent", "Parent", "", false, false);
+    Module first = module("org.example:core", "Core", "core", true, false);
+    Module second = module("org.example.core", "Core", "legacy/core", true, false);
+
+    assertThat(MavenModulesRunnerProperties.render(root, Arrays.asList(first, second), null, null),
+        is("sonar.projectKey=org.example:parent\n"
+          + "sonar.projectName=Parent\n"
+          + "sonar.projectVersion=1.0-SNAPSHOT\n"
+          + "sonar.modules=org_example_core,org_example_core_2\n"
+          + "org_example_core.sonar.projectKey=org.example:core\n"
+          + "org_example_core.sonar.projectName=Core\n"
+          + "org_example_core.sonar.projectBaseDir=core\n"
+          + "org_example_core.sonar.sources=src/main/java\n"
+          + "org_example_core_2.sonar.projectKey=org.example.core\n"
+          + "org_example_core_2.sonar.projectName=Core\n"
+          + "org_example_core_2.sonar.projectBaseDir=legacy/core\n"
+          + "org_example_core_2.sonar.sources=src/main/java\n"));
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.Launcher;
+import hudson.maven.MavenModuleSet;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.Result;
+import hudson.plugins.sonar.model.TriggersConfig;
+import org.jvnet.hudson.test.TestBuilder;
+
+import java.io.IOException;
+
+/**
+ * Analysis of Maven projects with the embedded sonar-runner, with the stub runner.
+ */
+public class MavenRunnerModeTest extends SonarTestCase {
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    useStubRunner();
+  }
+
+  public void testMavenProjectOnRunner() throws Exception {
+    configureDefaultMaven();
+    configureDefaultSonar();
+    MavenModuleSet project = newMavenProjectOnRunner();
+    project.getPrebuilders().add(new TestBuilder() {
+      @Override
+      public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+        build.getWorkspace().child("src/main/java").mkdirs();
+        return true;
+      }
+    });
+    AbstractBuild build = build(project, Result.SUCCESS);
+
+    // The modules recorded by the Maven integration are analyzed without running the sonar goal
+    assertLogContains("[SonarRunnerStub] sonar.projectKey=test:test", build);
+    assertLogContains("[SonarRunnerStub] sonar.sources=src/main/java", build);
+    assertLogContains("[SonarRunnerStub] EXECUTION SUCCESS", build);
+    assertLogDoesntContains("sonar:sonar", build);
+  }
+
+  public void testMavenProjectOnRunnerWithoutSources() throws Exception {
+    configureDefaultMaven();
+    configureDefaultSonar();
+    AbstractBuild build = build(newMavenProjectOnRunner(), Result.FAILURE);
+
+    assertLogContains("[SonarPlugin] [ERROR] No src/main/java in the modules of the project, nothing to analyze", build);
+    assertLogDoesntContains("[SonarRunnerStub]", build);
+  }
+
+  private MavenModuleSet newMavenProjectOnRunner() throws Exception {
+    MavenModuleSet project = setupMavenProject();
+    project.getPublishersList().replace(new SonarPublisher(SONAR_INSTALLATION_NAME, null, null, new TriggersConfig(), null, null,
+        null, null, null, SonarPublisher.MAVEN_ANALYSIS_RUNNER));
+    return project;
+  }
+}
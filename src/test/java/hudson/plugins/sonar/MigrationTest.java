@@ -97,6 +97,8 @@ public class MigrationTest extends SonarTestCase {
     assertEquals("src/java", project.getProjectSrcDir());
     assertEquals("UTF-8", project.getProjectSrcEncoding());
     assertEquals("target/classes", project.getProjectBinDir());
+    // Analyzed with Maven, the build parameters are left as they are
+    assertNull(project.getBuildWay());
   }
 
   private void verifyTriggers(SonarPublisher sonarPublisher) {
@@ -0,0 +1,49 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.model.AbstractBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+
+/**
+ * Minimum interval between the analyses of a job, with the stub runner.
+ */
+public class MinAnalysisIntervalTest extends SonarTestCase {
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    useStubRunner();
+  }
+
+  public void testMinIntervalAfterFailedAnalysis() throws Exception {
+    configureDefaultSonar();
+    FreeStyleProject project = createFreeStyleProject("RunnerProject");
+    SonarPublisher publisher = newSonarPublisherForRunner("src");
+    publisher.getTriggers().setMinAnalysisInterval(60);
+    project.getPublishersList().add(publisher);
+    build(project, Result.FAILURE);
+
+    // The failed analysis does not delay the next one
+    createDirectoryInWorkspace(project, "src");
+    AbstractBuild retried = build(project, Result.SUCCESS);
+    assertLogContains("[SonarRunnerStub] EXECUTION SUCCESS", retried);
+
+    AbstractBuild throttled = build(project, Result.SUCCESS);
+    assertLogContains("Skipping sonar analysis, the last analysis of this project ran", throttled);
+    assertLogDoesntContains("[SonarRunnerStub]", throttled);
+  }
+}
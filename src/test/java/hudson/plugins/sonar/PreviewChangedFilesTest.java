@@ -0,0 +1,57 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.model.AbstractBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.Result;
+import hudson.model.StringParameterDefinition;
+import hudson.plugins.sonar.model.LightProjectConfig;
+import hudson.plugins.sonar.model.TriggersConfig;
+
+/**
+ * Preview of the changed files of builds of other branches, with the stub runner.
+ */
+public class PreviewChangedFilesTest extends SonarTestCase {
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    useStubRunner();
+  }
+
+  public void testPreviewChangedFiles() throws Exception {
+    configureDefaultSonar();
+    FreeStyleProject project = createFreeStyleProject("RunnerProject");
+    LightProjectConfig config = newSonarPublisherForRunner("src").getLightProject();
+    project.getPublishersList().add(new SonarPublisher(SONAR_INSTALLATION_NAME, null, null, new TriggersConfig(), null, null, null, null,
+        config, null, true));
+    createDirectoryInWorkspace(project, "src");
+
+    // Mainline
+    project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("GIT_BRANCH", "origin/master")));
+    AbstractBuild mainline = build(project, Result.SUCCESS);
+    assertLogContains("[SonarRunnerStub] EXECUTION SUCCESS", mainline);
+    assertLogDoesntContains("sonar.inclusions", mainline);
+
+    // Branch without changes
+    project.removeProperty(ParametersDefinitionProperty.class);
+    project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("GIT_BRANCH", "origin/feature")));
+    AbstractBuild branch = build(project, Result.SUCCESS);
+    assertLogContains(Messages.SonarPublisher_NoChangedFiles("origin/feature"), branch);
+    assertLogDoesntContains("[SonarRunnerStub]", branch);
+  }
+}
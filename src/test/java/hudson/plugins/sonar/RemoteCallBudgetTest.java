@@ -0,0 +1,98 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.model.AbstractBuild;
+import hudson.model.FreeStyleProject;
+import hudson.plugins.sonar.remoting.LatencyInjectingChannel;
+import hudson.plugins.sonar.remoting.LatencyInjectingChannel.Stage;
+import hudson.plugins.sonar.remoting.LatencySlave;
+
+/**
+ * Runs {@link SonarPublisher#perform} on an agent with simulated latency and checks the number of remote calls
+ * per stage, so that regressions in chattiness are caught.
+ */
+public class RemoteCallBudgetTest extends SonarTestCase {
+  private static final long LATENCY_MILLIS = 20;
+
+  public void testLightProjectWithMaven() throws Exception {
+    configureDefaultMaven();
+    configureDefaultSonar();
+    LatencySlave slave = createLatencySlave(LATENCY_MILLIS);
+    FreeStyleProject project = setupFreeStyleProject();
+    project.setAssignedNode(slave);
+
+    LatencyInjectingChannel channel = run(project, slave);
+
+    assertTrue(channel.toString(), channel.getCount(Stage.WRITE) >= 1); // generated POM
+    assertEquals(channel.toString(), 0, channel.getCount(Stage.LIST_DIRECTORIES));
+    assertEquals(channel.toString(), 0, channel.getCount(Stage.CREATE_TEMP_FILE));
+  }
+
+  public void testLightProjectWithRunner() throws Exception {
+    configureDefaultSonar();
+    LatencySlave slave = createLatencySlave(LATENCY_MILLIS);
+    FreeStyleProject project = createFreeStyleProject("RunnerProject");
+    project.getPublishersList().add(newSonarPublisherForRunner("src"));
+    createDirectoryInWorkspace(project, "src");
+    project.setAssignedNode(slave);
+
+    LatencyInjectingChannel channel = run(project, slave);
+
+    // sonar-runner and bootstrapper jars
+    assertEquals(channel.toString(), 2, channel.getCount(Stage.CREATE_TEMP_FILE));
+    assertEquals(channel.toString(), 2, channel.getCount(Stage.COPY_FROM));
+    // sonar-runner-jenkins.properties
+    assertEquals(channel.toString(), 1, channel.getCount(Stage.WRITE));
+    assertEquals(channel.toString(), 0, channel.getCount(Stage.LIST_DIRECTORIES));
+  }
+
+  public void testWildcardSourcesWithRunner() throws Exception {
+    configureDefaultSonar();
+    LatencySlave slave = createLatencySlave(LATENCY_MILLIS);
+    FreeStyleProject project = createFreeStyleProject("WildcardProject");
+    project.getPublishersList().add(newSonarPublisherForRunner("**/src"));
+    project.setAssignedNode(slave);
+
+    LatencyInjectingChannel channel = run(project, slave);
+
+    // Empty workspace: one listing of the workspace root
+    assertEquals(channel.toString(), 1, channel.getCount(Stage.LIST_DIRECTORIES));
+  }
+
+  public void testAbsoluteWildcardSourcesWithRunner() throws Exception {
+    configureDefaultSonar();
+    LatencySlave slave = createLatencySlave(LATENCY_MILLIS);
+    FreeStyleProject project = createFreeStyleProject("AbsoluteWildcardProject");
+    String outside = createTmpDir().getAbsolutePath().replace('\\', '/');
+    project.getPublishersList().add(newSonarPublisherForRunner(outside + "/*/src"));
+    project.setAssignedNode(slave);
+
+    LatencyInjectingChannel channel = run(project, slave);
+
+    // Whether the pattern is absolute is decided without asking the agent
+    assertEquals(channel.toString(), 0, channel.getCount(Stage.ABSOLUTIZE));
+    assertEquals(channel.toString(), 1, channel.getCount(Stage.LIST_DIRECTORIES));
+  }
+
+  private LatencyInjectingChannel run(FreeStyleProject project, LatencySlave slave) throws Exception {
+    LatencyInjectingChannel channel = slave.getLatencyComputer().getLatencyChannel();
+    channel.reset();
+    AbstractBuild build = build(project);
+    assertLogContains("[SonarPlugin]", build);
+    return channel;
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.model.AbstractBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.plugins.sonar.model.BuildWay;
+import hudson.plugins.sonar.model.LightProjectConfig;
+import hudson.plugins.sonar.model.ReportsConfig;
+import hudson.plugins.sonar.model.TriggersConfig;
+
+/**
+ * Checks of what sonar-runner needs before it starts, with the stub runner.
+ */
+public class RunnerPreflightTest extends SonarTestCase {
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    useStubRunner();
+  }
+
+  public void testPreflightReport() throws Exception {
+    configureDefaultSonar();
+    FreeStyleProject project = createFreeStyleProject("RunnerProject");
+    LightProjectConfig config = new LightProjectConfig(
+        "test", "test", "Test", "0.1-SNAPSHOT", "Test project", null, null,
+        "src", "UTF-8", "classes", null,
+        new ReportsConfig("target/surefire-reports", null, null, false),
+        new BuildWay(LightProjectConfig.JAVA_RUNNER, ""));
+    project.getPublishersList().add(new SonarPublisher(SONAR_INSTALLATION_NAME, new TriggersConfig(), null, null, null, null, config));
+    AbstractBuild build = build(project, Result.FAILURE);
+
+    // All the problems are reported at once
+    assertLogContains("[SonarPlugin] [ERROR] Source directory not found: src", build);
+    assertLogContains("[SonarPlugin] [ERROR] Not found: Binaries directory classes", build);
+    assertLogContains("[SonarPlugin] [WARN] Not found, ignored by the analysis: Surefire reports target/surefire-reports", build);
+    assertLogDoesntContains("[SonarRunnerStub]", build);
+  }
+
+  public void testMissingSources() throws Exception {
+    configureDefaultSonar();
+    FreeStyleProject project = createFreeStyleProject("RunnerProject");
+    project.getPublishersList().add(newSonarPublisherForRunner("missing/**/src"));
+    AbstractBuild build = build(project, Result.FAILURE);
+
+    // Caught by the pre-flight check, before sonar-runner starts
+    assertLogContains("[SonarPlugin] [ERROR] No source directory matches missing/**/src", build);
+    assertLogDoesntContains("[SonarRunnerStub]", build);
+  }
+}
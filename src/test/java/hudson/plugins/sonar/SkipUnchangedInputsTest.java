@@ -0,0 +1,82 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.model.AbstractBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.Result;
+import hudson.model.StringParameterDefinition;
+import hudson.plugins.sonar.model.BuildWay;
+import hudson.plugins.sonar.model.LightProjectConfig;
+import hudson.plugins.sonar.model.ReportsConfig;
+import hudson.plugins.sonar.model.TriggersConfig;
+
+/**
+ * Analyses skipped when their inputs did not change, with the stub runner.
+ */
+public class SkipUnchangedInputsTest extends SonarTestCase {
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    useStubRunner();
+  }
+
+  public void testSkipUnchangedInputs() throws Exception {
+    configureDefaultSonar();
+    FreeStyleProject project = createFreeStyleProject("RunnerProject");
+    SonarPublisher publisher = newSonarPublisherForRunner("src");
+    publisher.getTriggers().setSkipUnchangedInputs(true);
+    project.getPublishersList().add(publisher);
+    createDirectoryInWorkspace(project, "src");
+    AbstractBuild first = build(project, Result.SUCCESS);
+    assertLogContains("[SonarRunnerStub] EXECUTION SUCCESS", first);
+
+    AbstractBuild unchanged = build(project, Result.SUCCESS);
+    assertLogContains("the analyzed inputs did not change since build #" + first.getNumber(), unchanged);
+    assertLogDoesntContains("[SonarRunnerStub]", unchanged);
+    assertNotNull(unchanged.getAction(BuildSonarAction.class));
+
+    project.getLastBuild().getWorkspace().child("src/Foo.java").write("class Foo {}", "UTF-8");
+    AbstractBuild changed = build(project, Result.SUCCESS);
+    assertLogContains("[SonarRunnerStub] EXECUTION SUCCESS", changed);
+  }
+
+  public void testSkipUnchangedInputsWithTusarReports() throws Exception {
+    configureDefaultSonar();
+    FreeStyleProject project = createFreeStyleProject("RunnerProject");
+    LightProjectConfig config = new LightProjectConfig(
+        "test", "test", "Test", "0.1-SNAPSHOT", "Test project", null, null,
+        "src", "UTF-8", null, null, new ReportsConfig(null, null, null, true),
+        new BuildWay(LightProjectConfig.JAVA_RUNNER, ""));
+    SonarPublisher publisher = new SonarPublisher(SONAR_INSTALLATION_NAME, new TriggersConfig(), null, null, null, null, config);
+    publisher.getTriggers().setSkipUnchangedInputs(true);
+    project.getPublishersList().add(publisher);
+    project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("sonar.tusar.reportsPaths", "tests:tusar")));
+    createDirectoryInWorkspace(project, "src");
+    createDirectoryInWorkspace(project, "tusar");
+    AbstractBuild first = build(project, Result.SUCCESS);
+    assertLogContains("[SonarRunnerStub] EXECUTION SUCCESS", first);
+
+    AbstractBuild unchanged = build(project, Result.SUCCESS);
+    assertLogContains("the analyzed inputs did not change since build #" + first.getNumber(), unchanged);
+
+    // New test reports, same sources
+    project.getLastBuild().getWorkspace().child("tusar/tests.xml").write("<tests/>", "UTF-8");
+    AbstractBuild newReports = build(project, Result.SUCCESS);
+    assertLogContains("[SonarRunnerStub] EXECUTION SUCCESS", newReports);
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.plugins.sonar.model.TriggersConfig;
+import hudson.util.ArgumentListBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SonarMavenArgumentInterceptorTest {
+  private final SonarInstallation installation = new SonarInstallation("default", false, "http://localhost:9000", null, null, null, null,
+      null, null, null, null, null, true);
+  private final SonarPublisher publisher = new SonarPublisher("default", null, null, new TriggersConfig(), null, null, null, null, null,
+      SonarPublisher.MAVEN_ANALYSIS_INLINE, true);
+
+  @Test
+  public void shouldAddSonarGoal() {
+    List<String> args = intercept(null);
+    assertTrue(args.contains("sonar:sonar"));
+    assertTrue(args.contains("-Dsonar.host.url=http://localhost:9000"));
+    assertFalse(args.contains("-Dsonar.analysis.mode=preview"));
+  }
+
+  @Test
+  public void shouldPreviewChangedFiles() {
+    List<String> args = intercept(new ChangedFilesPreview("feature", Arrays.asList("core/src/main/java/org/Foo.java")));
+    assertTrue(args.contains("sonar:sonar"));
+    assertTrue(args.contains("-Dsonar.analysis.mode=preview"));
+    assertTrue(args.contains("-Dsonar.inclusions=**/Foo.java"));
+  }
+
+  private List<String> intercept(ChangedFilesPreview preview) {
+    SonarMavenArgumentInterceptor interceptor = new SonarMavenArgumentInterceptor(publisher, installation, preview);
+    return interceptor.intercept(new ArgumentListBuilder("clean", "install"), null).toList();
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import hudson.model.AbstractBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+
+/**
+ * Stub mode of {@link SonarRunner}: the plugin runs as usual, but {@link SonarRunnerStub} replaces the analyzer.
+ */
+public class SonarRunnerStubTest extends SonarTestCase {
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    useStubRunner();
+  }
+
+  public void testEchoProperties() throws Exception {
+    configureDefaultSonar();
+    FreeStyleProject project = createFreeStyleProject("RunnerProject");
+    project.getPublishersList().add(newSonarPublisherForRunner("src"));
+    createDirectoryInWorkspace(project, "src");
+    AbstractBuild build = build(project, Result.SUCCESS);
+
+    assertLogContains(SonarRunnerStub.class.getName(), build);
+    assertLogContains("[SonarRunnerStub] sonar.projectKey=test:test", build);
+    assertLogContains("[SonarRunnerStub] sonar.sources=src", build);
+    assertLogContains("[SonarRunnerStub] EXECUTION SUCCESS", build);
+    // Temporary stub classes are removed, only the sources and the properties file are left
+    assertEquals(2, build.getWorkspace().list().size());
+  }
+
+  public void testBootstrapAgainstServer() throws Exception {
+    FakeSonarServer server = new FakeSonarServer().start();
+    try {
+      configureSonar(server);
+      FreeStyleProject project = createFreeStyleProject("RunnerProject");
+      project.getPublishersList().add(newSonarPublisherForRunner("src"));
+      createDirectoryInWorkspace(project, "src");
+      AbstractBuild build = build(project, Result.SUCCESS);
+      assertLogContains("[SonarRunnerStub] EXECUTION SUCCESS", build);
+      assertTrue(server.getRequestCount() >= 3);
+
+      // A busy server fails the analysis, like sonar-runner would
+      server.setErrorRate(1);
+      build = build(project, Result.FAILURE);
+      assertLogContains("/api/server/version answered 500", build);
+      assertLogContains("[SonarRunnerStub] EXECUTION FAILURE", build);
+    } finally {
+      server.stop();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SonarServerProbeTest {
+  private FakeSonarServer server;
+  private SonarInstallation installation;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new FakeSonarServer().start();
+    installation = new SonarInstallation("probed", false, server.getUrl(), null, null, null, null, null, null, null, null, null, false,
+        false, false, true);
+  }
+
+  @After
+  public void tearDown() {
+    server.stop();
+  }
+
+  @Test
+  public void shouldDetectVersion() {
+    assertThat(installation.isFourOrHigher(), is(false));
+    assertThat(SonarServerProbe.probe(installation).isUp(), is(true));
+    assertThat(installation.isFourOrHigher(), is(true));
+    assertThat(installation.isConfiguredFourOrHigher(), is(false));
+
+    server.setResponse("/api/server/index", "{\"id\":\"fake\",\"version\":\"3.7.4\",\"status\":\"UP\"}");
+    SonarServerProbe.probe(installation);
+    assertThat(installation.isFourOrHigher(), is(false));
+  }
+
+  @Test
+  public void shouldCacheResult() {
+    SonarServerProbe.Result result = SonarServerProbe.probe(installation);
+    int requests = server.getRequestCount();
+    assertThat(SonarServerProbe.getResult(installation), is(result));
+    assertThat(server.getRequestCount(), is(requests));
+  }
+
+  @Test
+  public void shouldDetectDownServer() {
+    server.stop();
+    SonarServerProbe.Result result = SonarServerProbe.probe(installation);
+    assertThat(result.isUp(), is(false));
+    assertThat(result.getVersion(), nullValue());
+  }
+
+  @Test
+  public void shouldOnlyProbeIndex() {
+    // Neither a web service requiring authentication nor a failing one make the server down
+    server.setStatus("/api/ce/queue", 500);
+    SonarServerProbe.Result result = SonarServerProbe.probe(installation);
+    assertThat(result.isUp(), is(true));
+    assertThat(result.getVersion(), is(FakeSonarServer.VERSION));
+  }
+
+  @Test
+  public void shouldDetectStartingServer() {
+    server.setResponse("/api/server/index", "{\"id\":\"fake\",\"version\":\"" + FakeSonarServer.VERSION + "\",\"status\":\"STARTING\"}");
+    assertThat(SonarServerProbe.probe(installation).isUp(), is(false));
+  }
+}
@@ -15,24 +15,32 @@
  */
 package hudson.plugins.sonar;
 
+import hudson.Launcher;
 import hudson.UDPBroadcastThread;
 import hudson.maven.MavenModuleSet;
 import hudson.model.Result;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
 import hudson.model.Cause;
 import hudson.model.FreeStyleProject;
 import hudson.model.Hudson;
+import hudson.model.Project;
 import hudson.model.Run;
+import hudson.plugins.sonar.model.BuildWay;
 import hudson.plugins.sonar.model.LightProjectConfig;
 import hudson.plugins.sonar.model.TriggersConfig;
+import hudson.plugins.sonar.remoting.LatencyInjectingChannel;
+import hudson.plugins.sonar.remoting.LatencySlave;
 import hudson.scm.NullSCM;
 import hudson.tasks.Maven;
 import hudson.util.jna.GNUCLibrary;
 import org.jvnet.hudson.test.HudsonTestCase;
 import org.jvnet.hudson.test.SingleFileSCM;
+import org.jvnet.hudson.test.TestBuilder;
 
 import java.io.File;
+import java.io.IOException;
 
 /**
  * @author Evgeny Mandrikov
@@ -64,6 +72,19 @@ public abstract class SonarTestCase extends HudsonTestCase {
     super.setUp();
   }
 
+  @Override
+  protected void tearDown() throws Exception {
+    SonarRunner.setStub(false);
+    super.tearDown();
+  }
+
+  /**
+   * Launches {@link SonarRunnerStub} instead of sonar-runner, until the end of the test.
+   */
+  protected void useStubRunner() {
+    SonarRunner.setStub(true);
+  }
+
   /**
    * Returns Fake Maven Installation.
    * 
@@ -87,11 +108,45 @@ public abstract class SonarTestCase extends HudsonTestCase {
     return configureSonar(new SonarInstallation(SONAR_INSTALLATION_NAME));
   }
 
+  /**
+   * Configures the default Sonar installation to use the given local stand-in server.
+   *
+   * @param server started stand-in server
+   * @return Sonar installation
+   */
+  protected SonarInstallation configureSonar(FakeSonarServer server) {
+    return configureSonar(new SonarInstallation(
+        SONAR_INSTALLATION_NAME,
+        false,
+        server.getUrl(), null,
+        null, null, null, null, // Database Properties
+        null, null, // Additional Properties
+        null
+    ));
+  }
+
   protected SonarInstallation configureSonar(SonarInstallation sonarInstallation) {
     hudson.getDescriptorByType(SonarPublisher.DescriptorImpl.class).setInstallations(sonarInstallation);
     return sonarInstallation;
   }
 
+  /**
+   * Creates an agent whose remote calls are delayed by the given latency and counted per stage.
+   *
+   * @param latencyMillis latency added to each remote call
+   * @return the connected agent
+   * @throws Exception if something is wrong
+   */
+  protected LatencySlave createLatencySlave(long latencyMillis) throws Exception {
+    LatencySlave slave = new LatencySlave("latency" + hudson.getNodes().size(), createTmpDir().getPath(), createComputerLauncher(null));
+    hudson.addNode(slave);
+    slave.getLatencyComputer().connect(false).get();
+    LatencyInjectingChannel channel = slave.getLatencyComputer().getLatencyChannel();
+    channel.setLatencyMillis(latencyMillis);
+    channel.reset();
+    return slave;
+  }
+
   protected MavenModuleSet setupMavenProject() throws Exception {
     return setupMavenProject("pom.xml");
   }
@@ -172,6 +227,35 @@ public abstract class SonarTestCase extends HudsonTestCase {
         PROJECT_CONFIG);
   }
 
+  /**
+   * @param sources source directories, wildcards allowed
+   * @return publisher analyzing a free-style project with the embedded sonar-runner
+   */
+  protected static SonarPublisher newSonarPublisherForRunner(String sources) {
+    LightProjectConfig config = new LightProjectConfig(
+        "test", "test", "Test", "0.1-SNAPSHOT", "Test project", null, null,
+        sources, "UTF-8", null, null, null,
+        new BuildWay(LightProjectConfig.JAVA_RUNNER, ""));
+    return new SonarPublisher(SONAR_INSTALLATION_NAME, new TriggersConfig(), null, null, null, null, config);
+  }
+
+  /**
+   * Adds a build step creating a directory in the workspace, for example the sources checked before running
+   * sonar-runner.
+   *
+   * @param project project
+   * @param path path of the directory, relative to the workspace
+   */
+  protected static void createDirectoryInWorkspace(Project<?, ?> project, final String path) {
+    project.getBuildersList().add(new TestBuilder() {
+      @Override
+      public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+        build.getWorkspace().child(path).mkdirs();
+        return true;
+      }
+    });
+  }
+
   /**
    * Asserts that Sonar executed with given arguments.
    * 
@@ -0,0 +1,126 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.benchmark;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Cause;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.plugins.sonar.FakeSonarServer;
+import hudson.plugins.sonar.SonarTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Runs concurrent free-style jobs analyzed against a {@link FakeSonarServer}, and reports successful analyses per
+ * minute and the time the Sonar step adds to a build. The fake server can't bootstrap a real sonar-runner, so the
+ * analyzer is stubbed: the figures cover the plugin and the bootstrap requests of the runner to the server, which
+ * the server latency and errors apply to, not the analysis itself.
+ * <p>
+ * Scaled with <tt>sonar.benchmark.jobs</tt>, <tt>sonar.benchmark.rounds</tt>, <tt>sonar.benchmark.serverLatencyMillis</tt>
+ * and <tt>sonar.benchmark.serverErrorRate</tt>.
+ * </p>
+ */
+public class AnalysisLoadBenchmark extends SonarTestCase {
+  private FakeSonarServer server;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    useStubRunner();
+    server = new FakeSonarServer().start();
+    server.setLatencyMillis(Long.getLong("sonar.benchmark.serverLatencyMillis", 50L));
+    server.setErrorRate(Double.parseDouble(System.getProperty("sonar.benchmark.serverErrorRate", "0")));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    server.stop();
+    super.tearDown();
+  }
+
+  public void testConcurrentAnalyses() throws Exception {
+    int jobs = Integer.getInteger("sonar.benchmark.jobs", 8);
+    int rounds = Integer.getInteger("sonar.benchmark.rounds", 3);
+    configureSonar(server);
+    hudson.setNumExecutors(jobs);
+
+    List<FreeStyleProject> baseline = new ArrayList<FreeStyleProject>();
+    List<FreeStyleProject> analyzed = new ArrayList<FreeStyleProject>();
+    for (int i = 0; i < jobs; i++) {
+      baseline.add(createFreeStyleProject("baseline-" + i));
+      FreeStyleProject project = createFreeStyleProject("analyzed-" + i);
+      project.getPublishersList().add(newSonarPublisherForRunner("src"));
+      createDirectoryInWorkspace(project, "src");
+      analyzed.add(project);
+    }
+
+    long baselineMillis = getDuration(run(baseline, rounds));
+    BenchmarkMeter meter = BenchmarkMeter.start("concurrent analyses");
+    List<AbstractBuild> builds = run(analyzed, rounds);
+    meter.stop();
+
+    int analyses = builds.size();
+    int succeeded = 0;
+    for (AbstractBuild build : builds) {
+      if (build.getResult() == Result.SUCCESS) {
+        succeeded++;
+      }
+    }
+    System.out.println("[Benchmark] " + succeeded + "/" + analyses + " analyses succeeded, "
+        + (succeeded * 60000L / Math.max(1, meter.getWallMillis())) + " successful analyses/min, "
+        + "Sonar step overhead " + (getDuration(builds) - baselineMillis) / analyses + "ms/build, "
+        + server.getRequestCount() + " server requests (" + server.getErrorCount() + " injected errors)");
+    // Throughput of failures is meaningless: without injected errors, every analysis must succeed
+    if (server.getErrorCount() == 0) {
+      assertEquals(analyses, succeeded);
+      assertTrue("The stub runner must bootstrap against the server", server.getRequestCount() >= 3 * analyses);
+    } else {
+      assertTrue(succeeded > 0);
+    }
+    meter.assertWithinThresholds();
+  }
+
+  /**
+   * @return all the builds, once completed
+   */
+  private List<AbstractBuild> run(List<FreeStyleProject> projects, int rounds) throws Exception {
+    List<AbstractBuild> builds = new ArrayList<AbstractBuild>();
+    for (int round = 0; round < rounds; round++) {
+      List<Future<? extends AbstractBuild>> futures = new ArrayList<Future<? extends AbstractBuild>>();
+      for (FreeStyleProject project : projects) {
+        futures.add(project.scheduleBuild2(0, new Cause.RemoteCause("", "")));
+      }
+      for (Future<? extends AbstractBuild> future : futures) {
+        builds.add(future.get());
+      }
+    }
+    return builds;
+  }
+
+  /**
+   * @return cumulated duration of the builds
+   */
+  private static long getDuration(List<AbstractBuild> builds) {
+    long duration = 0;
+    for (AbstractBuild build : builds) {
+      duration += build.getDuration();
+    }
+    return duration;
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures wall time, bytes allocated by the current thread and peak heap usage of a benchmarked section,
+ * and checks them against the <tt>sonar.benchmark.max*</tt> thresholds when those are set (see the "benchmark" profile).
+ */
+public final class BenchmarkMeter {
+  public static final String MAX_WALL_MILLIS_PROPERTY = "sonar.benchmark.maxWallMillis";
+  public static final String MAX_ALLOCATED_MB_PROPERTY = "sonar.benchmark.maxAllocatedMB";
+  public static final String MAX_PEAK_HEAP_MB_PROPERTY = "sonar.benchmark.maxPeakHeapMB";
+
+  private static final long MB = 1024L * 1024L;
+
+  private final String name;
+  private final long startNanos;
+  private final long startAllocated;
+
+  private long wallMillis;
+  private long allocatedBytes;
+  private long peakHeapBytes;
+
+  private BenchmarkMeter(String name) {
+    this.name = name;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+    this.startAllocated = allocatedByCurrentThread();
+    this.startNanos = System.nanoTime();
+  }
+
+  public static BenchmarkMeter start(String name) {
+    System.gc();
+    return new BenchmarkMeter(name);
+  }
+
+  /**
+   * Stops the measurement and prints the report on the standard output.
+   *
+   * @return this
+   */
+  public BenchmarkMeter stop() {
+    wallMillis = (System.nanoTime() - startNanos) / 1000000L;
+    long allocated = allocatedByCurrentThread();
+    allocatedBytes = allocated < 0 || startAllocated < 0 ? -1 : allocated - startAllocated;
+    peakHeapBytes = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peakHeapBytes += pool.getPeakUsage().getUsed();
+      }
+    }
+    System.out.println(this);
+    return this;
+  }
+
+  /**
+   * Fails if one of the configured thresholds is exceeded. Thresholds that are not set are not checked.
+   */
+  public void assertWithinThresholds() {
+    assertBelow("wall time (ms)", wallMillis, Long.getLong(MAX_WALL_MILLIS_PROPERTY));
+    if (allocatedBytes >= 0) {
+      assertBelow("allocated (MB)", allocatedBytes / MB, Long.getLong(MAX_ALLOCATED_MB_PROPERTY));
+    }
+    assertBelow("peak heap (MB)", peakHeapBytes / MB, Long.getLong(MAX_PEAK_HEAP_MB_PROPERTY));
+  }
+
+  private void assertBelow(String what, long value, Long threshold) {
+    if (threshold != null) {
+      assertTrue("[" + name + "] " + what + " " + value + " exceeds threshold " + threshold, value <= threshold);
+    }
+  }
+
+  public long getWallMillis() {
+    return wallMillis;
+  }
+
+  /**
+   * @return bytes allocated by the current thread, or -1 if the JVM doesn't support allocation accounting
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public long getPeakHeapBytes() {
+    return peakHeapBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "[Benchmark] " + name
+        + " wall=" + wallMillis + "ms"
+        + " allocated=" + (allocatedBytes < 0 ? "n/a" : allocatedBytes / MB + "MB")
+        + " peakHeap=" + peakHeapBytes / MB + "MB";
+  }
+
+  private static long allocatedByCurrentThread() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+      if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+        return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.benchmark;
+
+import hudson.Util;
+import hudson.model.Items;
+import hudson.plugins.sonar.SonarTestCase;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads thousands of job configurations carrying {@link hudson.plugins.sonar.SonarPublisher}, the way Jenkins does
+ * at startup, and reports the time attributable to the plugin: the same configurations are also loaded without the
+ * publisher.
+ * <p>
+ * Configurations are generated from the {@link hudson.plugins.sonar.MigrationTest} fixtures and from the current
+ * configuration format. Scaled with <tt>sonar.benchmark.configs</tt>.
+ * </p>
+ */
+public class ConfigLoadBenchmark extends SonarTestCase {
+  private static final String[] TEMPLATES = {
+      "/hudson/plugins/sonar/MigrationTest/jobs/oldMaven/config.xml",
+      "/hudson/plugins/sonar/MigrationTest/jobs/oldFreeStyle/config.xml",
+      "/hudson/plugins/sonar/MigrationTest/jobs/oldLight/config.xml",
+      "/hudson/plugins/sonar/MigrationTest/jobs/oldLightReuseReports/config.xml",
+      "/hudson/plugins/sonar/benchmark/ConfigLoadBenchmark/runner.xml",
+      "/hudson/plugins/sonar/benchmark/ConfigLoadBenchmark/maven.xml",
+  };
+
+  private static final String PUBLISHER_ELEMENT = "(?s)<hudson\\.plugins\\.sonar\\.SonarPublisher.*?</hudson\\.plugins\\.sonar\\.SonarPublisher>";
+
+  public void testLoadConfigurations() throws Exception {
+    int configs = Integer.getInteger("sonar.benchmark.configs", 6000);
+    File root = Util.createTempDir();
+    try {
+      List<File> withPublisher = generate(new File(root, "with"), configs, false);
+      List<File> withoutPublisher = generate(new File(root, "without"), configs, true);
+
+      // Warm up XStream and class loading, so that the first measured set doesn't pay for it
+      load(generate(new File(root, "warmup"), TEMPLATES.length * 10, false));
+
+      BenchmarkMeter baseline = BenchmarkMeter.start("load " + configs + " jobs without SonarPublisher");
+      load(withoutPublisher);
+      baseline.stop();
+      BenchmarkMeter meter = BenchmarkMeter.start("load " + configs + " jobs with SonarPublisher");
+      load(withPublisher);
+      meter.stop();
+
+      System.out.println("[Benchmark] attributable to SonarPublisher: "
+          + (meter.getWallMillis() - baseline.getWallMillis()) + "ms, "
+          + (meter.getAllocatedBytes() - baseline.getAllocatedBytes()) / 1024 + "KB allocated");
+      meter.assertWithinThresholds();
+    } finally {
+      Util.deleteRecursive(root);
+    }
+  }
+
+  private List<File> generate(File jobs, int count, boolean stripPublisher) throws Exception {
+    String[] templates = new String[TEMPLATES.length];
+    for (int i = 0; i < TEMPLATES.length; i++) {
+      InputStream input = getClass().getResourceAsStream(TEMPLATES[i]);
+      try {
+        templates[i] = IOUtils.toString(input, "UTF-8");
+      } finally {
+        input.close();
+      }
+      if (stripPublisher) {
+        templates[i] = templates[i].replaceAll(PUBLISHER_ELEMENT, "");
+      }
+    }
+    List<File> dirs = new ArrayList<File>(count);
+    for (int i = 0; i < count; i++) {
+      File dir = new File(jobs, "job-" + i);
+      FileUtils.writeStringToFile(new File(dir, "config.xml"), templates[i % templates.length], "UTF-8");
+      dirs.add(dir);
+    }
+    return dirs;
+  }
+
+  private void load(List<File> dirs) throws Exception {
+    for (File dir : dirs) {
+      assertNotNull(Items.load(hudson, dir));
+    }
+  }
+}
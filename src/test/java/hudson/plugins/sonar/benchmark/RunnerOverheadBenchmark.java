@@ -0,0 +1,65 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.benchmark;
+
+import hudson.model.AbstractBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.plugins.sonar.SonarTestCase;
+import hudson.tasks.LogRotator;
+
+/**
+ * Drives many builds through {@link hudson.plugins.sonar.SonarPublisher#perform} with the stub runner, and reports
+ * the per-analysis overhead of the plugin, compared to the same job without the publisher.
+ * Scaled with <tt>sonar.benchmark.builds</tt>.
+ */
+public class RunnerOverheadBenchmark extends SonarTestCase {
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    useStubRunner();
+  }
+
+  public void testPerAnalysisOverhead() throws Exception {
+    int builds = Integer.getInteger("sonar.benchmark.builds", 1000);
+    configureDefaultSonar();
+    FreeStyleProject baseline = createFreeStyleProject("baseline");
+    FreeStyleProject analyzed = createFreeStyleProject("analyzed");
+    analyzed.getPublishersList().add(newSonarPublisherForRunner("src"));
+    createDirectoryInWorkspace(analyzed, "src");
+    // Keep the build history small, thousands of builds are not the point here
+    analyzed.setLogRotator(new LogRotator(-1, 10, -1, -1));
+    baseline.setLogRotator(new LogRotator(-1, 10, -1, -1));
+
+    long baselineMillis = run(baseline, builds);
+    BenchmarkMeter meter = BenchmarkMeter.start("stub runner x" + builds);
+    long analyzedMillis = run(analyzed, builds);
+    meter.stop();
+
+    System.out.println("[Benchmark] per-analysis overhead " + (analyzedMillis - baselineMillis) / builds + "ms "
+        + "(analyzed " + analyzedMillis / builds + "ms/build, baseline " + baselineMillis / builds + "ms/build)");
+    meter.assertWithinThresholds();
+  }
+
+  private long run(FreeStyleProject project, int builds) throws Exception {
+    long duration = 0;
+    for (int i = 0; i < builds; i++) {
+      AbstractBuild<?, ?> build = build(project, Result.SUCCESS);
+      duration += build.getDuration();
+    }
+    return duration;
+  }
+}
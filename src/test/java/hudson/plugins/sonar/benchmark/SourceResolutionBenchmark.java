@@ -0,0 +1,101 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.benchmark;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.plugins.sonar.model.LightProjectConfig;
+import hudson.plugins.sonar.template.SonarPomGenerator;
+import hudson.plugins.sonar.utils.Utils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the wildcard source resolution and the POM generation end-to-end over a generated monorepo.
+ * Only executed with the "benchmark" profile: <tt>mvn test -Pbenchmark</tt>.
+ */
+public class SourceResolutionBenchmark {
+  private static File workspace;
+  private static FilePath root;
+
+  @BeforeClass
+  public static void generateWorkspace() throws Exception {
+    workspace = Util.createTempDir();
+    WorkspaceGenerator generator = WorkspaceGenerator.fromSystemProperties(10000);
+    BenchmarkMeter meter = BenchmarkMeter.start("generate");
+    generator.generate(new File(workspace, "ws"));
+    meter.stop();
+    System.out.println("[Benchmark] workspace " + generator);
+    root = new FilePath(new File(workspace, "ws"));
+  }
+
+  @AfterClass
+  public static void deleteWorkspace() throws Exception {
+    Util.deleteRecursive(workspace);
+  }
+
+  @Test
+  public void relativeWildcard() throws Exception {
+    BenchmarkMeter meter = BenchmarkMeter.start("relative wildcard");
+    List<String> dirs = Utils.getProjectSrcDirsList("**/src/main/java", root, new EnvVars());
+    meter.stop();
+
+    assertFalse(dirs.isEmpty());
+    meter.assertWithinThresholds();
+  }
+
+  @Test
+  public void absoluteWildcard() throws Exception {
+    String pattern = root.getRemote().replace('\\', '/') + "/module-0-0/**/src/main/java";
+    BenchmarkMeter meter = BenchmarkMeter.start("absolute wildcard");
+    List<String> dirs = Utils.getProjectSrcDirsList(pattern, root, new EnvVars());
+    meter.stop();
+
+    assertFalse(dirs.isEmpty());
+    meter.assertWithinThresholds();
+  }
+
+  @Test
+  public void mixedPatterns() throws Exception {
+    BenchmarkMeter meter = BenchmarkMeter.start("mixed patterns");
+    List<String> dirs = Utils.getProjectSrcDirsList("src/main/java, **/generated-sources/*, module-0-?/src/main/java", root, new EnvVars());
+    meter.stop();
+
+    assertTrue(dirs.size() > 1);
+    meter.assertWithinThresholds();
+  }
+
+  @Test
+  public void generatePom() throws Exception {
+    LightProjectConfig config = new LightProjectConfig(
+        "org.example", "monorepo", "Monorepo", "1.0", "Generated monorepo",
+        "1.6", "2.0.2", "**/src/main/java", "UTF-8", "target/classes", null, null, null);
+    BenchmarkMeter meter = BenchmarkMeter.start("generate POM");
+    SonarPomGenerator.generatePomForNonMavenProject(config, root, "sonar-pom.xml", new EnvVars(), true);
+    meter.stop();
+
+    assertTrue(root.child("sonar-pom.xml").exists());
+    meter.assertWithinThresholds();
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.benchmark;
+
+import hudson.Functions;
+import hudson.Util;
+import hudson.model.TaskListener;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * Generates a deterministic workspace shaped like a large monorepo: nested Maven-like modules
+ * with <tt>src/main/java</tt> package trees, generated source directories under <tt>target</tt>
+ * and symbolic links between sibling modules.
+ * <p>
+ * The same seed and the same limits always produce the same tree, so benchmark results are comparable between runs.
+ * </p>
+ */
+public class WorkspaceGenerator {
+  /**
+   * System properties used by the benchmarks to scale the generated tree.
+   */
+  public static final String SEED_PROPERTY = "sonar.benchmark.seed";
+  public static final String DIRECTORIES_PROPERTY = "sonar.benchmark.directories";
+
+  private final long seed;
+  private final int maxDirectories;
+  private int maxModuleDepth = 6;
+  private int maxChildModules = 4;
+  private int maxPackageDepth = 5;
+  private double symlinkRatio = 0.05;
+
+  private int directories;
+  private int modules;
+  private int symlinks;
+
+  public WorkspaceGenerator(long seed, int maxDirectories) {
+    this.seed = seed;
+    this.maxDirectories = maxDirectories;
+  }
+
+  /**
+   * @return generator configured from the <tt>sonar.benchmark.*</tt> system properties
+   */
+  public static WorkspaceGenerator fromSystemProperties(int defaultDirectories) {
+    return new WorkspaceGenerator(
+        Long.getLong(SEED_PROPERTY, 42L),
+        Integer.getInteger(DIRECTORIES_PROPERTY, defaultDirectories));
+  }
+
+  public WorkspaceGenerator withModuleDepth(int maxModuleDepth) {
+    this.maxModuleDepth = maxModuleDepth;
+    return this;
+  }
+
+  public WorkspaceGenerator withChildModules(int maxChildModules) {
+    this.maxChildModules = maxChildModules;
+    return this;
+  }
+
+  public WorkspaceGenerator withSymlinkRatio(double symlinkRatio) {
+    this.symlinkRatio = symlinkRatio;
+    return this;
+  }
+
+  /**
+   * Generates the tree under the given root, which must be empty or missing.
+   *
+   * @param root workspace root
+   * @throws IOException if a directory can't be created
+   * @throws InterruptedException if interrupted while creating a symbolic link
+   */
+  public void generate(File root) throws IOException, InterruptedException {
+    Random random = new Random(seed);
+    directories = 0;
+    modules = 0;
+    symlinks = 0;
+    mkdir(root);
+
+    // Breadth-first, so that the directory budget is spread over the top-level modules first
+    LinkedList<Module> pending = new LinkedList<Module>();
+    pending.add(new Module(root, 0));
+    File previousSources = null;
+    while (!pending.isEmpty() && directories < maxDirectories) {
+      Module module = pending.removeFirst();
+      modules++;
+      touch(new File(module.dir, "pom.xml"));
+
+      File sources = new File(module.dir, "src/main/java");
+      createPackages(sources, "com/example/m" + modules, random);
+      createPackages(new File(module.dir, "src/test/java"), "com/example/m" + modules, random);
+      createPackages(new File(module.dir, "target/generated-sources/annotations"), "com/example/generated", random);
+      createPackages(new File(module.dir, "target/classes"), "com/example/m" + modules, random);
+
+      // Links always point to the sources of a previously generated module and are never followed by another link,
+      // so the tree contains no cycles
+      if (previousSources != null && !Functions.isWindows() && random.nextDouble() < symlinkRatio) {
+        Util.createSymlink(module.dir, previousSources.getAbsolutePath(), "linked-src", TaskListener.NULL);
+        symlinks++;
+      }
+      previousSources = sources;
+
+      if (module.depth < maxModuleDepth) {
+        int children = 1 + random.nextInt(maxChildModules);
+        for (int i = 0; i < children; i++) {
+          File child = new File(module.dir, "module-" + module.depth + "-" + i);
+          mkdir(child);
+          pending.add(new Module(child, module.depth + 1));
+        }
+      }
+    }
+  }
+
+  private void createPackages(File base, String basePackage, Random random) throws IOException {
+    File dir = new File(base, basePackage);
+    mkdirs(dir);
+    int depth = 1 + random.nextInt(maxPackageDepth);
+    for (int i = 0; i < depth && directories < maxDirectories; i++) {
+      int siblings = 1 + random.nextInt(3);
+      for (int j = 1; j < siblings; j++) {
+        mkdir(new File(dir, "p" + i + "s" + j));
+      }
+      dir = new File(dir, "p" + i);
+      mkdir(dir);
+    }
+    touch(new File(dir, "Source.java"));
+  }
+
+  private void mkdirs(File dir) throws IOException {
+    if (dir.isDirectory()) {
+      return;
+    }
+    mkdirs(dir.getParentFile());
+    mkdir(dir);
+  }
+
+  private void mkdir(File dir) throws IOException {
+    if (!dir.isDirectory()) {
+      if (!dir.mkdir()) {
+        throw new IOException("Unable to create " + dir);
+      }
+      directories++;
+    }
+  }
+
+  private static void touch(File file) throws IOException {
+    new FileOutputStream(file).close();
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * @return number of directories created by the last {@link #generate(File)}
+   */
+  public int getDirectories() {
+    return directories;
+  }
+
+  public int getModules() {
+    return modules;
+  }
+
+  public int getSymlinks() {
+    return symlinks;
+  }
+
+  @Override
+  public String toString() {
+    return "seed=" + seed + ", directories=" + directories + ", modules=" + modules + ", symlinks=" + symlinks;
+  }
+
+  private static final class Module {
+    private final File dir;
+    private final int depth;
+
+    private Module(File dir, int depth) {
+      this.dir = dir;
+      this.depth = depth;
+    }
+  }
+}
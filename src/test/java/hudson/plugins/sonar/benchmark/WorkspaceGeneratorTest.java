@@ -0,0 +1,75 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.benchmark;
+
+import hudson.FilePath;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class WorkspaceGeneratorTest {
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void shouldBeDeterministic() throws Exception {
+    File first = new File(temp.getRoot(), "first");
+    File second = new File(temp.getRoot(), "second");
+    new WorkspaceGenerator(7, 500).generate(first);
+    new WorkspaceGenerator(7, 500).generate(second);
+
+    assertThat(list(first), is(list(second)));
+  }
+
+  @Test
+  public void shouldDependOnSeed() throws Exception {
+    File first = new File(temp.getRoot(), "first");
+    File second = new File(temp.getRoot(), "second");
+    new WorkspaceGenerator(7, 500).generate(first);
+    new WorkspaceGenerator(8, 500).generate(second);
+
+    assertThat(list(first), not(list(second)));
+  }
+
+  @Test
+  public void shouldRespectDirectoryBudget() throws Exception {
+    WorkspaceGenerator generator = new WorkspaceGenerator(7, 300);
+    generator.generate(temp.getRoot());
+
+    assertTrue(generator.getModules() > 1);
+    // The current module is always completed, so the budget can be slightly exceeded
+    assertTrue(generator.getDirectories() < 400);
+  }
+
+  private static List<String> list(File root) throws Exception {
+    List<String> paths = new ArrayList<String>();
+    for (FilePath path : new FilePath(root).list("**/*")) {
+      paths.add(path.getRemote().substring(root.getPath().length()));
+    }
+    Collections.sort(paths);
+    return paths;
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.model;
+
+import hudson.EnvVars;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RunnerPropertiesTest {
+  private static LightProjectConfig config(String projectName, ReportsConfig reports, String additionalProperties) {
+    return new LightProjectConfig("group", "artifact", projectName, "1.0", "", "1.6", "", "src", "UTF-8", "", "java",
+        reports, new BuildWay(LightProjectConfig.JAVA_RUNNER, ""), additionalProperties);
+  }
+
+  @Test
+  public void rendersPropertiesInOrder() {
+    RunnerProperties properties = config("Project", new ReportsConfig("target/surefire", "", null, false), "sonar.foo=bar")
+        .getRunnerProperties();
+
+    assertEquals("sonar.projectKey=group:artifact\n"
+        + "sonar.projectName=Project\n"
+        + "sonar.projectVersion=1.0\n"
+        + "sonar.java.source=1.6\n"
+        + "sonar.java.target=1.6\n"
+        + "sonar.sources=src/main/java,/abs/src\n"
+        + "sonar.sourceEncoding=UTF-8\n"
+        + "sonar.dynamicAnalysis=reuseReports\n"
+        + "sonar.surefire.reportsPath=target/surefire\n"
+        + "sonar.foo=bar\n",
+        properties.render(new EnvVars(), Arrays.asList("src/main/java", "\\abs\\src"), false));
+  }
+
+  @Test
+  public void expandsOnlyValuesWithVariables() {
+    RunnerProperties properties = config("${JOB_NAME}", null, "sonar.branch=$BRANCH").getRunnerProperties();
+    EnvVars env = new EnvVars("JOB_NAME", "job", "BRANCH", "master");
+
+    assertEquals("sonar.projectKey=group:artifact\n"
+        + "sonar.projectName=job\n"
+        + "sonar.projectVersion=1.0\n"
+        + "sonar.java.source=1.6\n"
+        + "sonar.java.target=1.6\n"
+        + "\n"
+        + "sonar.sourceEncoding=UTF-8\n"
+        + "sonar.branch=master\n",
+        properties.render(env, Collections.<String> emptyList(), true));
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.model;
+
+import java.util.Calendar;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TriggersConfigTest {
+  @Test
+  public void shouldAnalyzeNeverAnalyzedJob() {
+    TriggersConfig triggers = newTriggers(60, false);
+    assertThat(triggers.isTooSoon(null, time(10, 0)), nullValue());
+  }
+
+  @Test
+  public void shouldSkipWithinInterval() {
+    TriggersConfig triggers = newTriggers(60, false);
+    assertThat(triggers.isTooSoon(time(10, 0), time(10, 59)), notNullValue());
+    assertThat(triggers.isTooSoon(time(10, 0), time(11, 0)), nullValue());
+  }
+
+  @Test
+  public void shouldDeferLastBuildOfDay() {
+    TriggersConfig triggers = newTriggers(120, false);
+    assertThat(triggers.isTooSoon(time(22, 30), time(23, 0)), notNullValue());
+    assertThat(triggers.getNextAnalysis(time(22, 30), time(23, 0)), nullValue());
+
+    triggers.setAnalyzeLastBuildOfDay(true);
+    // Skipped, but analyzed once the interval elapsed, even if it ends tomorrow
+    assertThat(triggers.isTooSoon(time(22, 30), time(23, 0)), notNullValue());
+    assertThat(triggers.getNextAnalysis(time(22, 30), time(23, 0)).getTimeInMillis(), is(time(24, 30)));
+    // Even if another analysis would be allowed later today
+    assertThat(triggers.getNextAnalysis(time(20, 0), time(21, 0)).getTimeInMillis(), is(time(22, 0)));
+    assertThat(triggers.getNextAnalysis(time(20, 0), time(21, 30)).getTimeInMillis(), is(time(22, 0)));
+    // Not skipped
+    assertThat(triggers.getNextAnalysis(time(20, 0), time(23, 0)), nullValue());
+    assertThat(triggers.getNextAnalysis(null, time(23, 0)), nullValue());
+  }
+
+  @Test
+  public void shouldIgnoreNegativeInterval() {
+    assertThat(newTriggers(-5, false).getMinAnalysisInterval(), is(0));
+  }
+
+  @Test
+  public void shouldAnalyzeWithinWindow() {
+    TriggersConfig triggers = new TriggersConfig(true, true, true, true, false, false, 0, false, "* 20-23 * * *", false);
+    assertThat(triggers.isInAnalysisWindow(calendar(21, 30)), is(true));
+    assertThat(triggers.isInAnalysisWindow(calendar(10, 0)), is(false));
+  }
+
+  @Test
+  public void shouldAlwaysAnalyzeWithoutValidWindow() {
+    TriggersConfig triggers = newTriggers(0, false);
+    assertThat(triggers.isInAnalysisWindow(calendar(10, 0)), is(true));
+
+    triggers.setAnalysisWindow("not a cron");
+    assertThat(triggers.isInAnalysisWindow(calendar(10, 0)), is(true));
+  }
+
+  private static TriggersConfig newTriggers(int minAnalysisInterval, boolean analyzeLastBuildOfDay) {
+    return new TriggersConfig(true, true, true, true, false, false, minAnalysisInterval, analyzeLastBuildOfDay);
+  }
+
+  private static long time(int hour, int minute) {
+    return calendar(hour, minute).getTimeInMillis();
+  }
+
+  private static Calendar calendar(int hour, int minute) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.clear();
+    calendar.set(2014, Calendar.MAY, 12, hour, minute);
+    return calendar;
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.remoting;
+
+import hudson.model.Executor;
+import hudson.plugins.sonar.AnalysisPipeline;
+import hudson.remoting.Callable;
+import hudson.remoting.Future;
+import hudson.remoting.VirtualChannel;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * {@link VirtualChannel} which delays every call by a configurable latency before handing it to the real channel,
+ * and counts the calls made by builds per {@link Stage}.
+ * <p>
+ * The stage of a call is deduced from the stack of the calling thread, so that the plugin code doesn't need to know
+ * about this harness. Only calls made from an {@link Executor} thread or from a stage of an {@link AnalysisPipeline}
+ * are counted, node monitors and other background activity are ignored.
+ * </p>
+ */
+public class LatencyInjectingChannel implements VirtualChannel {
+  /**
+   * Remote operations we keep an eye on.
+   */
+  public enum Stage {
+    LIST_DIRECTORIES("hudson.FilePath", "listDirectories"),
+    CREATE_TEMP_FILE("hudson.FilePath", "createTempFile"),
+    COPY_FROM("hudson.FilePath", "copyFrom"),
+    WRITE("hudson.FilePath", "write"),
+    ABSOLUTIZE("hudson.FilePath", "absolutize"),
+    GET_ENVIRONMENT("hudson.EnvVars", "getRemote"),
+    OTHER(null, null);
+
+    private final String className;
+    private final String methodName;
+
+    Stage(String className, String methodName) {
+      this.className = className;
+      this.methodName = methodName;
+    }
+
+    private boolean matches(StackTraceElement frame) {
+      return frame.getClassName().equals(className) && frame.getMethodName().equals(methodName);
+    }
+
+    /**
+     * The outermost matching frame wins, so that <tt>copyFrom</tt> is not reported as the <tt>write</tt> it does internally.
+     */
+    static Stage of(StackTraceElement[] stack) {
+      for (int i = stack.length - 1; i >= 0; i--) {
+        for (Stage stage : values()) {
+          if (stage != OTHER && stage.matches(stack[i])) {
+            return stage;
+          }
+        }
+      }
+      return OTHER;
+    }
+  }
+
+  private final VirtualChannel delegate;
+  private final Map<Stage, Integer> counts = new EnumMap<Stage, Integer>(Stage.class);
+  private volatile long latencyMillis;
+
+  public LatencyInjectingChannel(VirtualChannel delegate) {
+    this.delegate = delegate;
+    reset();
+  }
+
+  public VirtualChannel getDelegate() {
+    return delegate;
+  }
+
+  public long getLatencyMillis() {
+    return latencyMillis;
+  }
+
+  public void setLatencyMillis(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  public synchronized void reset() {
+    for (Stage stage : Stage.values()) {
+      counts.put(stage, 0);
+    }
+  }
+
+  public synchronized int getCount(Stage stage) {
+    return counts.get(stage);
+  }
+
+  public synchronized int getTotal() {
+    int total = 0;
+    for (int count : counts.values()) {
+      total += count;
+    }
+    return total;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "Remote calls " + counts + " with latency " + latencyMillis + "ms";
+  }
+
+  private void roundTrip() throws InterruptedException {
+    StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+    if (Executor.currentExecutor() != null || isPipelineStage(stack)) {
+      Stage stage = Stage.of(stack);
+      synchronized (this) {
+        counts.put(stage, counts.get(stage) + 1);
+      }
+    }
+    if (latencyMillis > 0) {
+      Thread.sleep(latencyMillis);
+    }
+  }
+
+  private static boolean isPipelineStage(StackTraceElement[] stack) {
+    for (StackTraceElement frame : stack) {
+      if (frame.getClassName().startsWith(AnalysisPipeline.class.getName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public <V, T extends Throwable> V call(Callable<V, T> callable) throws IOException, T, InterruptedException {
+    roundTrip();
+    return delegate.call(callable);
+  }
+
+  public <V, T extends Throwable> Future<V> callAsync(Callable<V, T> callable) throws IOException {
+    try {
+      roundTrip();
+    } catch (InterruptedException e) {
+      throw (IOException) new IOException("Interrupted while simulating latency").initCause(e);
+    }
+    return delegate.callAsync(callable);
+  }
+
+  public void close() throws IOException {
+    delegate.close();
+  }
+
+  public void join() throws InterruptedException {
+    delegate.join();
+  }
+
+  public void join(long timeout) throws InterruptedException {
+    delegate.join(timeout);
+  }
+
+  public <T> T export(Class<T> type, T instance) {
+    return delegate.export(type, instance);
+  }
+
+  public void syncLocalIO() throws InterruptedException {
+    delegate.syncLocalIO();
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.remoting;
+
+import hudson.model.Computer;
+import hudson.model.Descriptor.FormException;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.ComputerLauncher;
+import hudson.slaves.DumbSlave;
+import hudson.slaves.NodeProperty;
+import hudson.slaves.RetentionStrategy;
+import hudson.slaves.SlaveComputer;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Agent whose channel goes through a {@link LatencyInjectingChannel}.
+ * Workspaces, launchers and environment of builds running on it all use the wrapped channel.
+ */
+public class LatencySlave extends DumbSlave {
+  public LatencySlave(String name, String remoteFS, ComputerLauncher launcher) throws FormException, IOException {
+    super(name, "Agent with simulated latency", remoteFS, "1", Mode.EXCLUSIVE, name, launcher,
+        RetentionStrategy.NOOP, Collections.<NodeProperty<?>>emptyList());
+  }
+
+  @Override
+  public Computer createComputer() {
+    return new LatencyComputer(this);
+  }
+
+  public LatencyComputer getLatencyComputer() {
+    return (LatencyComputer) toComputer();
+  }
+
+  public static class LatencyComputer extends SlaveComputer {
+    private LatencyInjectingChannel wrapped;
+
+    public LatencyComputer(LatencySlave slave) {
+      super(slave);
+    }
+
+    @Override
+    public synchronized VirtualChannel getChannel() {
+      VirtualChannel channel = super.getChannel();
+      if (channel == null) {
+        return null;
+      }
+      if (wrapped == null || wrapped.getDelegate() != channel) {
+        wrapped = new LatencyInjectingChannel(channel);
+      }
+      return wrapped;
+    }
+
+    /**
+     * @return the wrapped channel, to configure latency and read the counters
+     */
+    public LatencyInjectingChannel getLatencyChannel() {
+      return (LatencyInjectingChannel) getChannel();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.template;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class CompiledTemplateTest {
+  private static final ClassLoader LOADER = CompiledTemplateTest.class.getClassLoader();
+
+  @Test
+  public void shouldRenderSlots() {
+    CompiledTemplate template = CompiledTemplate.get(LOADER, "attributes.template", "firstname", "lastname");
+    Map<String, String> values = new HashMap<String, String>();
+    values.put("firstname", "Jack");
+    values.put("lastname", "$lastname$");
+
+    assertThat(template.render(values), is("First name: Jack, Last name: $lastname$"));
+  }
+
+  @Test
+  public void shouldKeepDollarsWhichAreNotSlots() {
+    CompiledTemplate template = CompiledTemplate.parse("inline", "cost: $5, ${VAR} $a.b-c_d$ $");
+
+    assertThat(template.getSlots().size(), is(1));
+    assertThat(template.getSlots().iterator().next(), is("a.b-c_d"));
+    assertThat(template.render(Collections.singletonMap("a.b-c_d", "x")), is("cost: $5, ${VAR} x $"));
+  }
+
+  @Test
+  public void shouldCacheTemplates() {
+    assertThat(CompiledTemplate.get(LOADER, "simple.template"), sameInstance(CompiledTemplate.get(LOADER, "simple.template")));
+  }
+
+  @Test(expected = TemplateException.class)
+  public void shouldDetectUnusedSlots() {
+    CompiledTemplate.get(LOADER, "attributes.template", "firstname");
+  }
+
+  @Test(expected = TemplateException.class)
+  public void shouldDetectMissingSlots() {
+    CompiledTemplate.get(LOADER, "attributes.template", "firstname", "lastname", "nickname");
+  }
+
+  @Test
+  public void shouldFailOnMissingValue() {
+    CompiledTemplate template = CompiledTemplate.get(LOADER, "attributes.template");
+    try {
+      template.render(Collections.singletonMap("firstname", "Jack"));
+      fail();
+    } catch (TemplateException e) {
+      assertThat(e.getMessage().contains("lastname"), is(true));
+    }
+  }
+
+  @Test
+  public void shouldMatchSonarPomTemplate() {
+    CompiledTemplate template = CompiledTemplate.get(LOADER, "hudson/plugins/sonar/sonar-light-pom.template");
+
+    assertThat(template.getSlots().contains("sonar.dynamicAnalysis"), is(true));
+    assertThat(template.getSlots().size(), is(19));
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.template;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SonarPomGeneratorTest {
+  private File dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = File.createTempFile("sonar-pom", "");
+    dir.delete();
+    dir.mkdirs();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(dir);
+  }
+
+  @Test
+  public void shouldWriteOnlyWhenContentChanges() throws Exception {
+    File file = new File(dir, "sonar-pom.xml");
+    FilePath pom = new FilePath(file);
+
+    assertThat(SonarPomGenerator.writeIfChanged(pom, "<project/>".getBytes("UTF-8")), is(true));
+    file.setLastModified(1000L);
+
+    assertThat(SonarPomGenerator.writeIfChanged(pom, "<project/>".getBytes("UTF-8")), is(false));
+    assertThat(file.lastModified(), is(1000L));
+
+    assertThat(SonarPomGenerator.writeIfChanged(pom, "<project></project>".getBytes("UTF-8")), is(true));
+    assertThat(FileUtils.readFileToString(file, "UTF-8"), is("<project></project>"));
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.utils;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.TaskListener;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class InputFingerprintTest {
+  private File dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = File.createTempFile("fingerprint", "");
+    dir.delete();
+    FileUtils.writeStringToFile(new File(dir, "src/a/A.java"), "class A {}");
+    FileUtils.writeStringToFile(new File(dir, "src/b/B.java"), "class B {}");
+    FileUtils.writeStringToFile(new File(dir, "classes/A.class"), "A");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(dir);
+  }
+
+  @Test
+  public void shouldBeStable() throws Exception {
+    assertThat(fingerprint("sonar.sources=src"), is(fingerprint("sonar.sources=src")));
+  }
+
+  @Test
+  public void shouldChangeWithContent() throws Exception {
+    String before = fingerprint("sonar.sources=src");
+    FileUtils.writeStringToFile(new File(dir, "src/b/B.java"), "class B { }");
+    assertThat(fingerprint("sonar.sources=src"), is(not(before)));
+  }
+
+  @Test
+  public void shouldChangeWithLayout() throws Exception {
+    String before = fingerprint("sonar.sources=src");
+    FileUtils.moveFile(new File(dir, "src/b/B.java"), new File(dir, "src/a/B.java"));
+    assertThat(fingerprint("sonar.sources=src"), is(not(before)));
+  }
+
+  @Test
+  public void shouldChangeWithProperties() throws Exception {
+    assertThat(fingerprint("sonar.sources=src"), is(not(fingerprint("sonar.sources=src\nsonar.language=java"))));
+  }
+
+  @Test
+  public void shouldTakeMissingPathsIntoAccount() throws Exception {
+    String before = fingerprint("sonar.sources=src");
+    FileUtils.deleteDirectory(new File(dir, "classes"));
+    String missing = fingerprint("sonar.sources=src");
+    assertThat(missing, is(not(before)));
+    new File(dir, "classes").mkdirs();
+    assertThat(fingerprint("sonar.sources=src"), is(not(missing)));
+  }
+
+  @Test
+  public void shouldNotFollowSymlinkCycles() throws Exception {
+    Util.createSymlink(new File(dir, "src/a"), "..", "parent", TaskListener.NULL);
+    String before = fingerprint("sonar.sources=src");
+    assertThat(fingerprint("sonar.sources=src"), is(before));
+    // Linked files are hashed from their content
+    FileUtils.writeStringToFile(new File(dir, "src/b/B.java"), "class B { }");
+    assertThat(fingerprint("sonar.sources=src"), is(not(before)));
+  }
+
+  private String fingerprint(String properties) throws Exception {
+    return new FilePath(dir).act(new InputFingerprint(properties)
+        .add("Source directory", "src")
+        .add("Binaries directory", new File(dir, "classes").getAbsolutePath()));
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.utils;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class NodeMavenRepositoryTest {
+  private File dir;
+  private File nodeRepository;
+  private File privateRepository;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = File.createTempFile("node-repository", "");
+    dir.delete();
+    nodeRepository = new File(dir, NodeMavenRepository.DIRECTORY);
+    privateRepository = new File(dir, "workspace/.repository");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(dir);
+  }
+
+  @Test
+  public void shouldSeedBuildHelperAndMojo() {
+    assertThat(NodeMavenRepository.getArtifacts(" "), is(Arrays.asList(
+        "org.codehaus.mojo:sonar-maven-plugin:" + NodeMavenRepository.DEFAULT_MOJO_VERSION, NodeMavenRepository.BUILD_HELPER)));
+    assertThat(NodeMavenRepository.getArtifacts("2.2"),
+        is(Arrays.asList("org.codehaus.mojo:sonar-maven-plugin:2.2", NodeMavenRepository.BUILD_HELPER)));
+  }
+
+  @Test
+  public void shouldCopyOnlyMissingArtifacts() throws Exception {
+    write(nodeRepository, "org/codehaus/mojo/build-helper-maven-plugin/1.1/build-helper-maven-plugin-1.1.jar", "node");
+    write(nodeRepository, "org/codehaus/mojo/build-helper-maven-plugin/1.1/build-helper-maven-plugin-1.1.pom", "node");
+    write(nodeRepository, ".seeded-org.codehaus.mojo_build-helper-maven-plugin_1.1", "");
+    write(privateRepository, "org/codehaus/mojo/build-helper-maven-plugin/1.1/build-helper-maven-plugin-1.1.pom", "job");
+
+    FilePath root = new FilePath(nodeRepository);
+    assertThat(root.act(new NodeMavenRepository.Layer(privateRepository.getAbsolutePath())), is(1));
+
+    assertThat(read(privateRepository, "org/codehaus/mojo/build-helper-maven-plugin/1.1/build-helper-maven-plugin-1.1.jar"), is("node"));
+    assertThat(read(privateRepository, "org/codehaus/mojo/build-helper-maven-plugin/1.1/build-helper-maven-plugin-1.1.pom"), is("job"));
+    assertThat(new File(privateRepository, ".seeded-org.codehaus.mojo_build-helper-maven-plugin_1.1").exists(), is(false));
+
+    // Nothing left to copy
+    assertThat(root.act(new NodeMavenRepository.Layer(privateRepository.getAbsolutePath())), is(0));
+  }
+
+  @Test
+  public void shouldIgnoreMissingNodeRepository() throws Exception {
+    assertThat(new FilePath(nodeRepository).act(new NodeMavenRepository.Layer(privateRepository.getAbsolutePath())), is(0));
+  }
+
+  private static void write(File root, String path, String content) throws IOException {
+    FileUtils.writeStringToFile(new File(root, path), content, "UTF-8");
+  }
+
+  private static String read(File root, String path) throws IOException {
+    return FileUtils.readFileToString(new File(root, path), "UTF-8");
+  }
+}
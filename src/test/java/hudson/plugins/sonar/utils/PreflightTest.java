@@ -0,0 +1,98 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.utils;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PreflightTest {
+  private File dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = File.createTempFile("preflight", "");
+    dir.delete();
+    new File(dir, "src").mkdirs();
+    new File(dir, "classes").mkdirs();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(dir);
+  }
+
+  @Test
+  public void shouldPassWhenEverythingIsThere() throws Exception {
+    Preflight.Report report = act(new Preflight()
+        .requireSources("src", Arrays.asList("src"))
+        .requirePath("Binaries directory", "classes")
+        .requirePath("Binaries directory", new File(dir, "classes").getAbsolutePath()));
+
+    assertThat(report.hasErrors(), is(false));
+    assertThat(report.getWarnings().isEmpty(), is(true));
+  }
+
+  @Test
+  public void shouldReportAllMissingPaths() throws Exception {
+    Preflight.Report report = act(new Preflight()
+        .requireSources("src,test", Arrays.asList("src", "test"))
+        .requirePath("Binaries directory", "target/classes")
+        .checkPath("Surefire reports", "target/surefire-reports"));
+
+    assertThat(report.getErrors(), is(Arrays.asList(
+        "Not found: Binaries directory target/classes",
+        "Source directory not found: test")));
+    assertThat(report.getWarnings(), is(Arrays.asList(
+        "Not found, ignored by the analysis: Surefire reports target/surefire-reports")));
+  }
+
+  @Test
+  public void shouldFailWhenNoSourceDirectoryMatches() throws Exception {
+    Preflight.Report report = act(new Preflight().requireSources("**/src/main/java", Collections.<String> emptyList()));
+
+    assertThat(report.getErrors(), is(Arrays.asList("No source directory matches **/src/main/java")));
+  }
+
+  @Test
+  public void shouldLookForJavaInPath() throws Exception {
+    File bin = new File(dir, "jdk/bin");
+    bin.mkdirs();
+    FileUtils.writeStringToFile(new File(bin, "java"), "");
+
+    assertThat(act(new Preflight().requireJava("java", bin.getAbsolutePath())).hasErrors(), is(false));
+    assertThat(act(new Preflight().requireJava(new File(bin, "java").getAbsolutePath(), null)).hasErrors(), is(false));
+    assertThat(act(new Preflight().requireJava("java", new File(dir, "src").getAbsolutePath())).hasErrors(), is(true));
+    assertThat(act(new Preflight().requireJava(new File(dir, "bin/java").getAbsolutePath(), null)).hasErrors(), is(true));
+    // Left to the system when the search path is unknown
+    assertThat(act(new Preflight().requireJava("java", null)).hasErrors(), is(false));
+  }
+
+  private Preflight.Report act(Preflight preflight) throws Exception {
+    return new FilePath(dir).act(preflight);
+  }
+}
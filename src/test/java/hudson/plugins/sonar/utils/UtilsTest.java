@@ -0,0 +1,39 @@
+/*
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package hudson.plugins.sonar.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UtilsTest {
+  @Test
+  public void unixAbsolutePaths() {
+    assertTrue(Utils.isAbsolute("/opt/sources/", true));
+    assertFalse(Utils.isAbsolute("sources/", true));
+    assertFalse(Utils.isAbsolute("C:/sources/", true));
+  }
+
+  @Test
+  public void windowsAbsolutePaths() {
+    assertTrue(Utils.isAbsolute("C:/sources/", false));
+    assertTrue(Utils.isAbsolute("//server/share/", false));
+    assertFalse(Utils.isAbsolute("/sources/", false));
+    assertFalse(Utils.isAbsolute("sources/", false));
+    assertFalse(Utils.isAbsolute("C:", false));
+  }
+}